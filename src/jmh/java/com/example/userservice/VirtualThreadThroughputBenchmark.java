@@ -0,0 +1,101 @@
+package com.example.userservice;
+
+import com.example.userservice.config.VirtualThreadPinningMonitor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// End-to-end throughput of an authenticated, DB-backed endpoint with 1k+ concurrent connections,
+// comparing Tomcat's platform thread pool with virtual threads. Pinning events seen during the
+// run are printed at tear-down.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(1024)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.httpclient.connectionPoolSize=2048")
+public class VirtualThreadThroughputBenchmark {
+
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("\"token\":\"([^\"]+)\"");
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private HttpRequest meRequest;
+
+    @Setup
+    public void setUp() throws Exception {
+        // Passed as arguments: default properties would lose to application.properties, which turns
+        // virtual threads off and binds fixed ports
+        context = new SpringApplicationBuilder(UserServiceApplication.class)
+                .run(
+                        "--jwt.signing.allow-ephemeral-key=true",
+                        "--server.port=0",
+                        "--management.server.port=-1",
+                        "--server.tomcat.max-connections=4096",
+                        "--server.tomcat.accept-count=1024",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--diagnostics.virtual-threads.pinning.threshold=1ms",
+                        "--spring.datasource.url=jdbc:h2:mem:throughput;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.example.userservice=WARN",
+                        "--logging.level.org.springframework.security=WARN");
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        String baseUrl = "http://localhost:" + port;
+
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        HttpResponse<String> login = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                "{\"usernameOrEmail\":\"user\",\"password\":\"user123\"}"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = TOKEN_PATTERN.matcher(login.body());
+        if (!matcher.find()) {
+            throw new IllegalStateException("Login failed: " + login.body());
+        }
+
+        meRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/api/users/me"))
+                .header("Authorization", "Bearer " + matcher.group(1))
+                .GET()
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        double pinned = context.getBean(MeterRegistry.class).find("jvm.threads.virtual.pinned")
+                .counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+        // Without the monitor (platform threads) nothing is counted, so 0 there means "not measured"
+        boolean monitored = context.getBeanNamesForType(VirtualThreadPinningMonitor.class).length > 0;
+        System.out.printf("%nvirtualThreads=%s pinning monitor=%s pinned carrier events: %.0f%n",
+                virtualThreads, monitored, pinned);
+        context.close();
+    }
+
+    @Benchmark
+    public int getCurrentUser() throws Exception {
+        return httpClient.send(meRequest, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
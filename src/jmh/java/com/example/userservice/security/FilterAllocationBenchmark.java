@@ -0,0 +1,104 @@
+package com.example.userservice.security;
+
+import com.example.userservice.enums.AccountType;
+import com.example.userservice.enums.Role;
+import com.example.userservice.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Cost of JwtAuthenticationFilter per request with warm caches (verified token, principal, token version).
+// Run with the GC profiler and compare gc.alloc.rate.norm, the bytes allocated per request:
+//   mvn -P benchmark test-compile exec:exec -Djmh.args="FilterAllocationBenchmark -prof gc"
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterAllocationBenchmark {
+
+    // true: principal rebuilt from token claims; false: principal from the principal cache
+    @Param({"false", "true"})
+    private boolean statelessClaims;
+
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest authenticatedRequest;
+    private MockHttpServletRequest publicRequest;
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final FilterChain chain = (request, response) -> {
+    };
+
+    @Setup
+    public void setUp() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UserPrincipal principal = new UserPrincipal(
+                42L, "benchmark-user", "{noop}password", Role.ROLE_USER, AccountType.REGULAR, true, 0);
+
+        JwtTokenProvider tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "signingKeys",
+                new JwtSigningKeys("", "", "", "ES256", true, new DefaultResourceLoader()));
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpiration", 900_000L);
+        ReflectionTestUtils.setField(tokenProvider, "verifiedCacheMaxSize", 10_000L);
+        ReflectionTestUtils.setField(tokenProvider, "statelessClaims", statelessClaims);
+        tokenProvider.init();
+
+        UserRepository userRepository = Mockito.mock(UserRepository.class);
+        Mockito.when(userRepository.findActiveTokenVersionById(42L)).thenReturn(Optional.of(0));
+
+        filter = new JwtAuthenticationFilter(meterRegistry);
+        ReflectionTestUtils.setField(filter, "tokenProvider", tokenProvider);
+        ReflectionTestUtils.setField(filter, "userDetailsService",
+                (org.springframework.security.core.userdetails.UserDetailsService) username -> principal);
+        ReflectionTestUtils.setField(filter, "principalCache",
+                new PrincipalCache(10_000, Duration.ofMinutes(5), meterRegistry));
+        ReflectionTestUtils.setField(filter, "tokenVersionService",
+                new TokenVersionService(userRepository, 10_000, Duration.ofSeconds(30), meterRegistry));
+        ReflectionTestUtils.setField(filter, "tokenRevocationService",
+                new TokenRevocationService(new LocalRevocationBroadcaster(), 900_000L, 10_000, meterRegistry));
+
+        String token = tokenProvider.generateToken(principal);
+        authenticatedRequest = request("/api/users/me");
+        authenticatedRequest.addHeader("Authorization", "Bearer " + token);
+        publicRequest = request("/api/auth/login");
+
+        // Fail fast if the filter does not authenticate, rather than measuring the rejection path
+        if (authenticatedRequest() == null) {
+            throw new IllegalStateException("Benchmark request was not authenticated");
+        }
+    }
+
+    @Benchmark
+    public Authentication authenticatedRequest() throws Exception {
+        filter.doFilter(authenticatedRequest, response, chain);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    @Benchmark
+    public Authentication publicRequest() throws Exception {
+        filter.doFilter(publicRequest, response, chain);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    private static MockHttpServletRequest request(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        request.setRemoteAddr("203.0.113.7");
+        return request;
+    }
+}
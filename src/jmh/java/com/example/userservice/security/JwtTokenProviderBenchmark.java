@@ -0,0 +1,63 @@
+package com.example.userservice.security;
+
+import com.example.userservice.enums.AccountType;
+import com.example.userservice.enums.Role;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    // 0 disables the verified-token cache so every call pays for signature verification
+    @Param({"0", "10000"})
+    private long verifiedCacheSize;
+
+    // Algorithm of the (ephemeral) signing key
+    @Param({"ES256", "RS256"})
+    private String algorithm;
+
+    private JwtTokenProvider tokenProvider;
+    private Authentication authentication;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "signingKeys",
+                new JwtSigningKeys("", "", "", algorithm, true, new DefaultResourceLoader()));
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpiration", 86_400_000L);
+        ReflectionTestUtils.setField(tokenProvider, "verifiedCacheMaxSize", verifiedCacheSize);
+        ReflectionTestUtils.setField(tokenProvider, "statelessClaims", false);
+        tokenProvider.init();
+
+        UserPrincipal principal = new UserPrincipal(
+                42L, "benchmark-user", null, Role.ROLE_USER, AccountType.REGULAR, true, 0);
+        authentication = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        token = tokenProvider.generateToken(authentication);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return tokenProvider.generateToken(authentication);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return tokenProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public String getUsernameFromToken() {
+        return tokenProvider.getUsernameFromToken(token);
+    }
+}
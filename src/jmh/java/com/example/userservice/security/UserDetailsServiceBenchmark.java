@@ -0,0 +1,78 @@
+package com.example.userservice.security;
+
+import com.example.userservice.UserServiceApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Loads users from an in-memory H2 data set through the full Spring/JPA stack
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserDetailsServiceBenchmark {
+
+    @Param({"10000"})
+    private int userCount;
+
+    private ConfigurableApplicationContext context;
+    private CustomUserDetailsService userDetailsService;
+
+    @Setup
+    public void setUp() {
+        // Passed as arguments: default properties would lose to application.properties (show-sql, DEBUG logging)
+        context = new SpringApplicationBuilder(UserServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--jwt.signing.allow-ephemeral-key=true",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.example.userservice=WARN",
+                        "--logging.level.org.springframework.security=WARN");
+        userDetailsService = context.getBean(CustomUserDetailsService.class);
+
+        // The hash is never verified here, so one value is shared by every row
+        String password = context.getBean(org.springframework.security.crypto.password.PasswordEncoder.class)
+                .encode("password123");
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            rows.add(new Object[]{"bench" + i, "bench" + i + "@example.com", password, now, now});
+        }
+        context.getBean(JdbcTemplate.class).batchUpdate(
+                "INSERT INTO users (id, username, email, password, role, account_type, is_active, "
+                        + "is_email_verified, token_version, created_at, updated_at) "
+                        + "VALUES (NEXT VALUE FOR users_seq, ?, ?, ?, 'ROLE_USER', 'REGULAR', true, true, 0, ?, ?)",
+                rows);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserDetails loadByUsername() {
+        int i = ThreadLocalRandom.current().nextInt(userCount);
+        return userDetailsService.loadUserByUsername("bench" + i);
+    }
+
+    @Benchmark
+    public UserDetails loadByEmail() {
+        int i = ThreadLocalRandom.current().nextInt(userCount);
+        return userDetailsService.loadUserByUsername("bench" + i + "@example.com");
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.userservice.service;
+
+import com.example.userservice.UserServiceApplication;
+import com.example.userservice.entity.User;
+import com.example.userservice.enums.AccountType;
+import com.example.userservice.enums.Role;
+import com.example.userservice.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Persistence side of registration under many concurrent callers: the old exists-checks
+// followed by save versus a single insert that relies on the unique constraints.
+// BCrypt is left out (one precomputed hash), as it costs the same on both paths.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class RegistrationBenchmark {
+
+    @Param({"precheck", "constraint"})
+    private String path;
+
+    // Share of attempts that reuse an already registered username
+    @Param({"0", "10"})
+    private int duplicatePercent;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private TransactionTemplate transactionTemplate;
+    private String passwordHash;
+
+    @Setup
+    public void setUp() {
+        // Passed as arguments: default properties would lose to application.properties (pool size, show-sql)
+        context = new SpringApplicationBuilder(UserServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--jwt.signing.allow-ephemeral-key=true",
+                        "--spring.datasource.url=jdbc:h2:mem:registration;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "--spring.datasource.hikari.maximum-pool-size=32",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.example.userservice=WARN",
+                        "--logging.level.org.springframework.security=WARN",
+                        "--logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=OFF",
+                        "--logging.level.org.hibernate.orm.jdbc.batch=OFF");
+        userRepository = context.getBean(UserRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        passwordHash = context.getBean(PasswordEncoder.class).encode("password123");
+
+        // Something for the duplicate attempts to collide with
+        register("existing0");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Boolean register() {
+        String username = ThreadLocalRandom.current().nextInt(100) < duplicatePercent
+                ? "existing0"
+                : "reg" + sequence.incrementAndGet();
+        return register(username);
+    }
+
+    private Boolean register(String username) {
+        String email = username + "@example.com";
+        try {
+            return transactionTemplate.execute(status -> {
+                if ("precheck".equals(path)
+                        && (userRepository.existsByUsername(username) || userRepository.existsByEmail(email))) {
+                    return false;
+                }
+
+                User user = User.builder()
+                        .username(username)
+                        .email(email)
+                        .password(passwordHash)
+                        .role(Role.ROLE_USER)
+                        .accountType(AccountType.REGULAR)
+                        .isActive(true)
+                        .isEmailVerified(false)
+                        .build();
+                userRepository.saveAndFlush(user);
+                return true;
+            });
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.ApiResponse;
+import com.example.userservice.dto.UserResponse;
+import com.example.userservice.entity.User;
+import com.example.userservice.enums.AccountType;
+import com.example.userservice.enums.Role;
+import com.example.userservice.mapper.UserMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Builder;
+import lombok.Data;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Generated mapper + record DTO versus the previous hand-written builder mapping into a Lombok @Data class
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserResponseMappingBenchmark {
+
+    private UserMapper userMapper;
+    private ObjectMapper objectMapper;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        userMapper = Mappers.getMapper(UserMapper.class);
+        // Same defaults as the ObjectMapper Spring Boot configures for MVC
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        LocalDateTime now = LocalDateTime.now();
+        user = User.builder()
+                .id(42L)
+                .username("benchmark-user")
+                .email("benchmark@example.com")
+                .password("$2a$10$abcdefghijklmnopqrstuv")
+                .fullName("Benchmark User")
+                .phoneNumber("0123456789")
+                .role(Role.ROLE_USER)
+                .accountType(AccountType.VIP)
+                .isActive(true)
+                .isEmailVerified(true)
+                .vipExpiryDate(now.plusMonths(3))
+                .createdAt(now)
+                .updatedAt(now)
+                .lastLoginAt(now)
+                .build();
+    }
+
+    @Benchmark
+    public UserResponse map() {
+        return userMapper.toResponse(user);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ApiResponse.success(userMapper.toResponse(user)));
+    }
+
+    @Benchmark
+    public LegacyUserResponse legacyMap() {
+        return legacyMapToUserResponse(user);
+    }
+
+    @Benchmark
+    public byte[] legacyMapAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ApiResponse.success(legacyMapToUserResponse(user)));
+    }
+
+    private static LegacyUserResponse legacyMapToUserResponse(User user) {
+        return LegacyUserResponse.builder()
+                .id(user.getId())
+                .username(user.getUsername())
+                .email(user.getEmail())
+                .fullName(user.getFullName())
+                .phoneNumber(user.getPhoneNumber())
+                .role(user.getRole())
+                .accountType(user.getAccountType())
+                .isActive(user.getIsActive())
+                .isEmailVerified(user.getIsEmailVerified())
+                .vipExpiryDate(user.getVipExpiryDate())
+                .createdAt(user.getCreatedAt())
+                .lastLoginAt(user.getLastLoginAt())
+                .build();
+    }
+
+    // Shape of UserResponse before it became a record
+    @Data
+    @Builder
+    public static class LegacyUserResponse {
+        private Long id;
+        private String username;
+        private String email;
+        private String fullName;
+        private String phoneNumber;
+        private Role role;
+        private AccountType accountType;
+        private Boolean isActive;
+        private Boolean isEmailVerified;
+        private LocalDateTime vipExpiryDate;
+        private LocalDateTime createdAt;
+        private LocalDateTime lastLoginAt;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.userservice.config;
+
+import com.example.userservice.entity.User;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.MissingCacheStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+// Hibernate second-level cache: bounded Caffeine regions behind JCache, configured here rather than
+// in a provider config file so size and TTL come from application.properties
+@Configuration
+public class SecondLevelCacheConfig {
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${users.cache.max-size}") long maxSize,
+                                              @Value("${users.cache.ttl}") Duration ttl) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager();
+
+        CaffeineConfiguration<Object, Object> region = new CaffeineConfiguration<>();
+        region.setMaximumSize(OptionalLong.of(maxSize));
+        region.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        // Hibernate caches disassembled, immutable state; copying it on every get/put buys nothing
+        region.setStoreByValue(false);
+        region.setStatisticsEnabled(true);
+
+        if (cacheManager.getCache(User.CACHE_REGION) == null) {
+            cacheManager.createCache(User.CACHE_REGION, region);
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            // Every cached entity must have a region created above; never fall back to an unbounded default
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, MissingCacheStrategy.FAIL.getExternalRepresentation());
+            // Feeds the hibernate.second.level.cache.* meters
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+            // ...without the per-session INFO summary that statistics otherwise switch on
+            properties.put(AvailableSettings.LOG_SESSION_METRICS, false);
+        };
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.userservice.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Counts SQL statements Hibernate prepares on the current thread; RequestMetricsFilter reads
+// the count at the end of each request
+public class StatementCountingInspector implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNTER = new ThreadLocal<>();
+
+    public static void start() {
+        COUNTER.set(new int[1]);
+    }
+
+    public static int stop() {
+        int[] counter = COUNTER.get();
+        COUNTER.remove();
+        return counter == null ? 0 : counter[0];
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] counter = COUNTER.get();
+        if (counter != null) {
+            counter[0]++;
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.userservice.config;
+
+import com.example.userservice.entity.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+// users.id used to come from an IDENTITY column. On a database created back then, ddl-auto=update
+// creates users_seq starting at 1, so new ids would collide with existing rows. Before the app takes
+// traffic, the sequence is moved past max(id); it is never moved backwards.
+@Component
+@Slf4j
+public class UserIdSequenceInitializer {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Injected so the schema (and users_seq) exists before this runs
+    public UserIdSequenceInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignWithExistingIds() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) con ->
+                con.getMetaData().getDatabaseProductName());
+        String nextValueSql = switch (database) {
+            case "PostgreSQL" -> "SELECT CASE WHEN is_called THEN last_value + " + User.ID_ALLOCATION_SIZE
+                    + " ELSE last_value END FROM " + User.ID_SEQUENCE;
+            case "H2" -> "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = '"
+                    + User.ID_SEQUENCE.toUpperCase(Locale.ROOT) + "'";
+            default -> null;
+        };
+        if (nextValueSql == null) {
+            log.warn("Cannot check {} on {}; make sure it is above max(users.id)", User.ID_SEQUENCE, database);
+            return;
+        }
+
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM users", Long.class);
+        Long nextValue = jdbcTemplate.queryForObject(nextValueSql, Long.class);
+        if (maxId == null || nextValue == null) {
+            return;
+        }
+
+        // Hibernate's pooled optimizer may hand out up to one allocation below the value it fetched
+        long required = maxId + User.ID_ALLOCATION_SIZE;
+        if (nextValue < required) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + User.ID_SEQUENCE + " RESTART WITH " + required);
+            log.warn("Moved {} from {} to {}, past the highest existing user id {}",
+                    User.ID_SEQUENCE, nextValue, required, maxId);
+        }
+    }
+}
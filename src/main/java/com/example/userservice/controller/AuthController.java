@@ -1,11 +1,15 @@
 package com.example.userservice.controller;
 
 import com.example.userservice.dto.*;
+import com.example.userservice.security.JwtTokenProvider;
+import com.example.userservice.security.UserPrincipal;
 import com.example.userservice.service.AuthService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -15,6 +19,9 @@ public class AuthController {
     @Autowired
     private AuthService authService;
     
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+    
     @PostMapping("/register")
     public ResponseEntity<ApiResponse<UserResponse>> register(@Valid @RequestBody RegisterRequest request) {
         UserResponse user = authService.register(request);
@@ -23,9 +30,32 @@ public class AuthController {
                 .body(ApiResponse.success("User registered successfully", user));
     }
     
+    @GetMapping("/availability")
+    public ResponseEntity<ApiResponse<AvailabilityResponse>> checkAvailability(
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) String email) {
+        AvailabilityResponse availability = authService.checkAvailability(username, email);
+        return ResponseEntity.ok(ApiResponse.success(availability));
+    }
+    
     @PostMapping("/login")
-    public ResponseEntity<ApiResponse<AuthResponse>> login(@Valid @RequestBody LoginRequest request) {
-        AuthResponse authResponse = authService.login(request);
+    public ResponseEntity<ApiResponse<AuthResponse>> login(@Valid @RequestBody LoginRequest request,
+                                                           HttpServletRequest httpRequest) {
+        AuthResponse authResponse = authService.login(request, httpRequest.getRemoteAddr());
         return ResponseEntity.ok(ApiResponse.success("Login successful", authResponse));
     }
+    
+    @PostMapping("/refresh")
+    public ResponseEntity<ApiResponse<AuthResponse>> refresh(@Valid @RequestBody RefreshTokenRequest request) {
+        AuthResponse authResponse = authService.refresh(request);
+        return ResponseEntity.ok(ApiResponse.success("Token refreshed", authResponse));
+    }
+    
+    @PostMapping("/logout")
+    public ResponseEntity<ApiResponse<Void>> logout(@AuthenticationPrincipal UserPrincipal principal,
+                                                    @RequestBody(required = false) LogoutRequest request,
+                                                    HttpServletRequest httpRequest) {
+        authService.logout(principal, tokenProvider.resolveToken(httpRequest), request);
+        return ResponseEntity.ok(ApiResponse.success("Logged out successfully", null));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.example.userservice.controller;
+
+import com.example.userservice.security.JwtSigningKeys;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+
+// Public keys for verifying access tokens locally (RFC 7517 key set). The body is built once at startup;
+// a matching If-None-Match gets a 304 from the ETag, and caches may keep it for max-age.
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    private final JwtSigningKeys signingKeys;
+
+    @Value("${jwt.jwks.max-age}")
+    private Duration maxAge;
+
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> jwks() {
+        return ResponseEntity.ok()
+                .eTag(signingKeys.getJwkSetETag())
+                .cacheControl(CacheControl.maxAge(maxAge).cachePublic())
+                .body(signingKeys.getJwkSetJson());
+    }
+}
@@ -1,15 +1,31 @@
 package com.example.userservice.controller;
 
 import com.example.userservice.dto.ApiResponse;
+import com.example.userservice.dto.CursorPage;
 import com.example.userservice.dto.UpdateUserRequest;
+import com.example.userservice.dto.UserImportResult;
 import com.example.userservice.dto.UserResponse;
+import com.example.userservice.enums.AccountType;
+import com.example.userservice.enums.ExportFormat;
+import com.example.userservice.enums.ImportFormat;
+import com.example.userservice.enums.Role;
+import com.example.userservice.service.IdempotencyService;
+import com.example.userservice.service.UserExportService;
+import com.example.userservice.service.UserImportService;
 import com.example.userservice.service.UserService;
+import com.fasterxml.jackson.core.type.TypeReference;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -19,6 +35,15 @@ public class UserController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private UserExportService userExportService;
+    
+    @Autowired
+    private IdempotencyService idempotencyService;
+    
+    @Autowired
+    private UserImportService userImportService;
+    
     @GetMapping("/me")
     public ResponseEntity<ApiResponse<UserResponse>> getCurrentUser() {
         UserResponse user = userService.getCurrentUser();
@@ -47,24 +72,60 @@ public class UserController {
     
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<List<UserResponse>>> getAllUsers() {
-        List<UserResponse> users = userService.getAllUsers();
+    public ResponseEntity<ApiResponse<CursorPage<UserResponse>>> getAllUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) Boolean isActive,
+            @RequestParam(required = false) AccountType accountType,
+            @RequestParam(required = false) Role role) {
+        CursorPage<UserResponse> users = userService.getUsers(cursor, size, isActive, accountType, role);
         return ResponseEntity.ok(ApiResponse.success(users));
     }
     
     @GetMapping("/vip")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<List<UserResponse>>> getVipUsers() {
-        List<UserResponse> users = userService.getVipUsers();
+    public ResponseEntity<ApiResponse<CursorPage<UserResponse>>> getVipUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        CursorPage<UserResponse> users = userService.getVipUsers(cursor, size);
         return ResponseEntity.ok(ApiResponse.success(users));
     }
     
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format) {
+        StreamingResponseBody body = out -> userExportService.export(format, out);
+        
+        MediaType contentType = format == ExportFormat.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : MediaType.APPLICATION_NDJSON;
+        String filename = "users." + format.name().toLowerCase();
+        
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+    
+    // Raw request body, one user per line; see UserImportService for the accepted columns
+    @PostMapping("/import")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<UserImportResult>> importUsers(
+            @RequestParam(defaultValue = "NDJSON") ImportFormat format,
+            InputStream body) throws IOException {
+        UserImportResult result = userImportService.importUsers(format, body);
+        return ResponseEntity.ok(ApiResponse.success("Import finished", result));
+    }
+    
     @PostMapping("/{id}/upgrade-vip")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<UserResponse>> upgradeToVip(
             @PathVariable Long id,
-            @RequestParam(defaultValue = "1") int months) {
-        UserResponse user = userService.upgradeToVip(id, months);
+            @RequestParam(defaultValue = "1") int months,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        UserResponse user = idempotencyService.execute("users.upgrade-vip", idempotencyKey, List.of(id, months),
+                new TypeReference<>() {}, () -> userService.upgradeToVip(id, months));
         return ResponseEntity.ok(ApiResponse.success("User upgraded to VIP", user));
     }
     
@@ -1,16 +1,25 @@
 package com.example.userservice.controller;
 
+import com.example.userservice.dto.BulkProcessResultDTO;
+import com.example.userservice.dto.BulkProcessVIPRequestDTO;
 import com.example.userservice.dto.CreateVIPUpgradeRequestDTO;
+import com.example.userservice.dto.CursorPage;
 import com.example.userservice.dto.ProcessVIPRequestDTO;
 import com.example.userservice.dto.VIPUpgradeRequestDTO;
-import com.example.userservice.service.UserService;
+import com.example.userservice.entity.VIPUpgradeRequest;
+import com.example.userservice.security.UserPrincipal;
+import com.example.userservice.service.IdempotencyService;
 import com.example.userservice.service.VIPUpgradeRequestService;
+import com.fasterxml.jackson.core.type.TypeReference;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -18,55 +27,80 @@ import java.util.List;
 @RequiredArgsConstructor
 public class VIPUpgradeRequestController {
 
+    // Endpoints take the caller's id from the authenticated UserPrincipal instead of reloading the user
     private final VIPUpgradeRequestService requestService;
-    private final UserService userService;
+    private final IdempotencyService idempotencyService;
 
     @PostMapping
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<VIPUpgradeRequestDTO> createRequest(
+            @AuthenticationPrincipal UserPrincipal principal,
             @Valid @RequestBody CreateVIPUpgradeRequestDTO dto) {
-        Long userId = userService.getCurrentUser().getId();
-        VIPUpgradeRequestDTO created = requestService.createRequest(userId, dto);
+        VIPUpgradeRequestDTO created = requestService.createRequest(principal.getId(), dto);
         return ResponseEntity.ok(created);
     }
 
     @GetMapping("/my-requests")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<List<VIPUpgradeRequestDTO>> getMyRequests() {
-        Long userId = userService.getCurrentUser().getId();
-        List<VIPUpgradeRequestDTO> requests = requestService.getUserRequests(userId);
+    public ResponseEntity<List<VIPUpgradeRequestDTO>> getMyRequests(@AuthenticationPrincipal UserPrincipal principal) {
+        List<VIPUpgradeRequestDTO> requests = requestService.getUserRequests(principal.getId());
         return ResponseEntity.ok(requests);
     }
 
     @DeleteMapping("/{requestId}")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<Void> cancelRequest(@PathVariable Long requestId) {
-        Long userId = userService.getCurrentUser().getId();
-        requestService.cancelRequest(requestId, userId);
+    public ResponseEntity<Void> cancelRequest(@AuthenticationPrincipal UserPrincipal principal,
+                                              @PathVariable Long requestId) {
+        requestService.cancelRequest(requestId, principal.getId());
         return ResponseEntity.noContent().build();
     }
 
     @GetMapping("/admin/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<VIPUpgradeRequestDTO>> getAllRequests() {
-        List<VIPUpgradeRequestDTO> requests = requestService.getAllRequests();
+    public ResponseEntity<CursorPage<VIPUpgradeRequestDTO>> getAllRequests(
+            @RequestParam(required = false) VIPUpgradeRequest.RequestStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        CursorPage<VIPUpgradeRequestDTO> requests = requestService.getAllRequests(status, from, to, cursor, size);
         return ResponseEntity.ok(requests);
     }
 
     @GetMapping("/admin/pending")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<VIPUpgradeRequestDTO>> getPendingRequests() {
-        List<VIPUpgradeRequestDTO> requests = requestService.getPendingRequests();
+    public ResponseEntity<CursorPage<VIPUpgradeRequestDTO>> getPendingRequests(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        CursorPage<VIPUpgradeRequestDTO> requests = requestService.getPendingRequests(from, to, cursor, size);
         return ResponseEntity.ok(requests);
     }
 
     @PostMapping("/admin/{requestId}/process")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<VIPUpgradeRequestDTO> processRequest(
+            @AuthenticationPrincipal UserPrincipal principal,
             @PathVariable Long requestId,
-            @Valid @RequestBody ProcessVIPRequestDTO dto) {
-        Long adminId = userService.getCurrentUser().getId();
-        VIPUpgradeRequestDTO processed = requestService.processRequest(requestId, adminId, dto);
+            @Valid @RequestBody ProcessVIPRequestDTO dto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        Long adminId = principal.getId();
+        VIPUpgradeRequestDTO processed = idempotencyService.execute("vip-requests.process", idempotencyKey,
+                List.of(requestId, dto), new TypeReference<>() {},
+                () -> requestService.processRequest(requestId, adminId, dto));
         return ResponseEntity.ok(processed);
     }
+
+    @PostMapping("/admin/bulk-process")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<BulkProcessResultDTO>> processRequests(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @Valid @RequestBody BulkProcessVIPRequestDTO dto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        Long adminId = principal.getId();
+        List<BulkProcessResultDTO> results = idempotencyService.execute("vip-requests.bulk-process", idempotencyKey,
+                dto, new TypeReference<>() {}, () -> requestService.processRequests(adminId, dto));
+        return ResponseEntity.ok(results);
+    }
 }
\ No newline at end of file
@@ -15,5 +15,8 @@ public class AuthResponse {
     @Builder.Default
     private String tokenType = "Bearer";
     private Long expiresIn;
+    // Exchanged at /api/auth/refresh for a new access token and a new refresh token
+    private String refreshToken;
+    private Long refreshExpiresIn;
     private UserResponse user;
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.example.userservice.dto;
+
+import com.example.userservice.entity.VIPUpgradeRequest;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkProcessResultDTO {
+    private Long requestId;
+    private boolean success;
+    private VIPUpgradeRequest.RequestStatus status;
+    private String message;
+}
@@ -0,0 +1,24 @@
+package com.example.userservice.dto;
+
+import com.example.userservice.entity.VIPUpgradeRequest;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkProcessVIPRequestDTO {
+
+    @NotEmpty(message = "At least one request id is required")
+    private List<@NotNull Long> requestIds;
+
+    @NotNull(message = "Status is required")
+    private VIPUpgradeRequest.RequestStatus status;
+
+    private String adminNote;
+}
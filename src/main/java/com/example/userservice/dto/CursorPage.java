@@ -0,0 +1,20 @@
+package com.example.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorPage<T> {
+
+    private List<T> items;
+    // Opaque value to pass back as ?cursor= for the next page; null on the last page
+    private String nextCursor;
+    private Boolean hasMore;
+}
@@ -0,0 +1,15 @@
+package com.example.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRowError {
+    // 1-based line number in the uploaded file (the CSV header is line 1)
+    private long line;
+    private String username;
+    private String message;
+}
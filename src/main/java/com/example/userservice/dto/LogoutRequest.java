@@ -0,0 +1,19 @@
+package com.example.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LogoutRequest {
+    
+    // Refresh token of this session; revoked together with the access token
+    private String refreshToken;
+    
+    // Sign out of every session of the user, not only this one
+    private boolean allSessions;
+}
@@ -0,0 +1,19 @@
+package com.example.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportResult {
+    private long totalRows;
+    private long imported;
+    private long failed;
+    // Capped at users.import.max-errors; failed still counts every rejected row
+    private List<ImportRowError> errors = new ArrayList<>();
+}
@@ -2,29 +2,21 @@ package com.example.userservice.dto;
 
 import com.example.userservice.enums.AccountType;
 import com.example.userservice.enums.Role;
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-@Builder
-public class UserResponse {
-    
-    private Long id;
-    private String username;
-    private String email;
-    private String fullName;
-    private String phoneNumber;
-    private Role role;
-    private AccountType accountType;
-    private Boolean isActive;
-    private Boolean isEmailVerified;
-    private LocalDateTime vipExpiryDate;
-    private LocalDateTime createdAt;
-    private LocalDateTime lastLoginAt;
-}
\ No newline at end of file
+// Built by UserMapper or directly by JPQL constructor expressions (UserRepository)
+public record UserResponse(
+        Long id,
+        String username,
+        String email,
+        String fullName,
+        String phoneNumber,
+        Role role,
+        AccountType accountType,
+        Boolean isActive,
+        Boolean isEmailVerified,
+        LocalDateTime vipExpiryDate,
+        LocalDateTime createdAt,
+        LocalDateTime lastLoginAt) {
+}
@@ -1,24 +1,19 @@
 package com.example.userservice.dto;
 
 import com.example.userservice.entity.VIPUpgradeRequest;
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-public class VIPUpgradeRequestDTO {
-    private Long id;
-    private Long userId;
-    private String username;
-    private String fullName;
-    private Integer requestedMonths;
-    private String message;
-    private VIPUpgradeRequest.RequestStatus status;
-    private LocalDateTime requestDate;
-    private LocalDateTime processedDate;
-    private String adminNote;
+// Built by VIPUpgradeRequestMapper or directly by JPQL constructor expressions (VIPUpgradeRequestRepository)
+public record VIPUpgradeRequestDTO(
+        Long id,
+        Long userId,
+        String username,
+        String fullName,
+        Integer requestedMonths,
+        String message,
+        VIPUpgradeRequest.RequestStatus status,
+        LocalDateTime requestDate,
+        LocalDateTime processedDate,
+        String adminNote) {
 }
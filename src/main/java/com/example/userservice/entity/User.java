@@ -7,27 +7,51 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = {
+        @UniqueConstraint(name = User.UK_USERNAME, columnNames = "username"),
+        @UniqueConstraint(name = User.UK_EMAIL, columnNames = "email")
+}, indexes = {
+        // Drives the VIP expiry sweep and VIP listings
+        @Index(name = "idx_users_account_type_vip_expiry", columnList = "account_type, vip_expiry_date")
+})
+// Second-level cached; the region is created in SecondLevelCacheConfig. JDBC writes to this table
+// must evict the rows they touch (UserRepository.evictFromCacheAfterCommit)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class User {
 
+    public static final String CACHE_REGION = "users";
+
+    // Named so violations can be mapped back to a field (see UniqueConstraintTranslator)
+    public static final String UK_USERNAME = "uk_users_username";
+    public static final String UK_EMAIL = "uk_users_email";
+
+    public static final String ID_SEQUENCE = "users_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Pooled sequence rather than IDENTITY so Hibernate can batch inserts (bulk import). Databases
+    // created with IDENTITY get the sequence moved past their ids by UserIdSequenceInitializer
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
-    @Column(unique = true, nullable = false, length = 100)
+    @Column(nullable = false, length = 100)
     private String username;
 
-    @Column(unique = true, nullable = false, length = 100)
+    @Column(nullable = false, length = 100)
     private String email;
 
     @Column(nullable = false)
@@ -67,8 +91,23 @@ public class User {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
 
+    // Written only by LoginTimestampRecorder's JDBC batch, which does not bump version; excluded from
+    // entity updates so a save from an older copy cannot move it backwards
+    @Column(updatable = false)
     private LocalDateTime lastLoginAt;
 
+    // Bumped to revoke every token issued with the previous value
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Integer tokenVersion = 0;
+
+    // Optimistic lock; JDBC writes to mapped columns bump it as well (last_login_at excepted)
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Long version;
+
     public boolean isVip() {
         return accountType == AccountType.VIP &&
                 vipExpiryDate != null &&
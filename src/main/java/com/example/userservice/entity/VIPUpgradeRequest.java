@@ -4,11 +4,22 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "vip_upgrade_requests")
+@Table(name = "vip_upgrade_requests", indexes = {
+        // Admin queue: status filter + newest-first keyset on (request_date, id), in the listings' DESC order
+        @Index(name = "idx_vip_requests_status_date", columnList = "status, request_date desc, id desc"),
+        // Unfiltered admin listing
+        @Index(name = "idx_vip_requests_date", columnList = "request_date desc, id desc"),
+        // A user's own requests
+        @Index(name = "idx_vip_requests_user_date", columnList = "user_id, request_date desc")
+}, uniqueConstraints = {
+        // At most one pending request per user (see pendingUserId)
+        @UniqueConstraint(name = "uk_vip_requests_pending_user", columnNames = "pending_user_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -43,6 +54,23 @@ public class VIPUpgradeRequest {
     @Column(columnDefinition = "TEXT")
     private String adminNote;
 
+    // Equals user_id while the request is PENDING and NULL otherwise. A unique constraint on it
+    // behaves like a partial unique index on (user_id) WHERE status = 'PENDING', on any database
+    // that allows several NULLs in a unique column.
+    @Column(name = "pending_user_id")
+    private Long pendingUserId;
+
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Long version;
+
+    @PrePersist
+    @PreUpdate
+    void syncPendingUserId() {
+        pendingUserId = status == RequestStatus.PENDING ? user.getId() : null;
+    }
+
     public enum RequestStatus {
         PENDING,
         APPROVED,
@@ -0,0 +1,6 @@
+package com.example.userservice.enums;
+
+public enum ExportFormat {
+    NDJSON,
+    CSV
+}
\ No newline at end of file
@@ -0,0 +1,6 @@
+package com.example.userservice.enums;
+
+public enum ImportFormat {
+    NDJSON,
+    CSV
+}
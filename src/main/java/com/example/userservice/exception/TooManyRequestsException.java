@@ -0,0 +1,20 @@
+package com.example.userservice.exception;
+
+public class TooManyRequestsException extends RuntimeException {
+    
+    // Sent as Retry-After
+    private final long retryAfterSeconds;
+    
+    public TooManyRequestsException(String message) {
+        this(message, 1);
+    }
+    
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
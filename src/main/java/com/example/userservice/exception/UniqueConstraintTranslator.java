@@ -0,0 +1,51 @@
+package com.example.userservice.exception;
+
+import com.example.userservice.entity.User;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Turns a violated unique constraint on users into the error the old exists-checks returned
+public final class UniqueConstraintTranslator {
+
+    private UniqueConstraintTranslator() {
+    }
+
+    // The column as drivers report it: "Key (email)=(...)" on PostgreSQL, "ON PUBLIC.USERS(EMAIL ...)" on H2
+    private static final Pattern VIOLATED_COLUMN = Pattern.compile("(?:key \\(|users\\()\"?(username|email)\\b");
+
+    public static RuntimeException translate(DataIntegrityViolationException ex) {
+        String constraint = violatedConstraint(ex);
+        if (constraint.contains(User.UK_USERNAME)) {
+            return new BadRequestException("Username already exists");
+        }
+        if (constraint.contains(User.UK_EMAIL)) {
+            return new BadRequestException("Email already exists");
+        }
+
+        // Databases created before the constraints were named keep Hibernate's generated UK_... names
+        // (ddl-auto=update never renames them), so fall back to the column in the driver message
+        String message = ex.getMostSpecificCause().getMessage();
+        Matcher column = VIOLATED_COLUMN.matcher(message != null ? message.toLowerCase(Locale.ROOT) : "");
+        if (column.find()) {
+            return new BadRequestException(column.group(1).equals("username")
+                    ? "Username already exists"
+                    : "Email already exists");
+        }
+        return ex;
+    }
+
+    private static String violatedConstraint(DataIntegrityViolationException ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return violation.getConstraintName().toLowerCase(Locale.ROOT);
+            }
+        }
+        // Dialects that cannot extract the name still mention it in the driver message
+        String message = ex.getMostSpecificCause().getMessage();
+        return message != null ? message.toLowerCase(Locale.ROOT) : "";
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.userservice.mapper;
+
+import com.example.userservice.dto.UserResponse;
+import com.example.userservice.entity.User;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+
+import java.time.LocalDateTime;
+
+// Implementation is generated at compile time (UserMapperImpl): plain getter calls into the record constructor
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface UserMapper {
+
+    UserResponse toResponse(User user);
+
+    // Login response: the new last login time has not been written to the row yet
+    @Mapping(target = "lastLoginAt", source = "loginAt")
+    UserResponse toResponse(User user, LocalDateTime loginAt);
+}
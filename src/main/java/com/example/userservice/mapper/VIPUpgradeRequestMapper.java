@@ -0,0 +1,16 @@
+package com.example.userservice.mapper;
+
+import com.example.userservice.dto.VIPUpgradeRequestDTO;
+import com.example.userservice.entity.VIPUpgradeRequest;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface VIPUpgradeRequestMapper {
+
+    @Mapping(target = "userId", source = "user.id")
+    @Mapping(target = "username", source = "user.username")
+    @Mapping(target = "fullName", source = "user.fullName")
+    VIPUpgradeRequestDTO toDto(VIPUpgradeRequest request);
+}
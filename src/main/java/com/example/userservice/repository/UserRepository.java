@@ -1,27 +1,81 @@
 package com.example.userservice.repository;
 
+import com.example.userservice.dto.UserResponse;
 import com.example.userservice.entity.User;
 import com.example.userservice.enums.AccountType;
+import com.example.userservice.enums.Role;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
     
-    Optional<User> findByUsername(String username);
+    Boolean existsByUsername(String username);
     
-    Optional<User> findByEmail(String email);
+    Boolean existsByEmail(String email);
     
-    Optional<User> findByUsernameOrEmail(String username, String email);
+    // At most two rows: the owner of the username and the owner of the email
+    @Query("SELECT u.username AS username, u.email AS email FROM User u "
+            + "WHERE u.username = :username OR u.email = :email")
+    List<UsernameAndEmail> findUsernameAndEmailByUsernameOrEmail(@Param("username") String username,
+                                                                 @Param("email") String email);
     
-    Boolean existsByUsername(String username);
+    @Query("SELECT u.username AS username, u.email AS email FROM User u "
+            + "WHERE u.username IN :usernames OR u.email IN :emails")
+    List<UsernameAndEmail> findUsernameAndEmailByUsernameInOrEmailIn(@Param("usernames") Collection<String> usernames,
+                                                                     @Param("emails") Collection<String> emails);
     
-    Boolean existsByEmail(String email);
+    interface UsernameAndEmail {
+        String getUsername();
+        
+        String getEmail();
+    }
     
     List<User> findByAccountType(AccountType accountType);
     
     List<User> findByIsActive(Boolean isActive);
+    
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password, u.version = u.version + 1 WHERE u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password);
+    
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.id = :id AND u.isActive = true")
+    Optional<Integer> findActiveTokenVersionById(@Param("id") Long id);
+    
+    // Keyset page ordered by id; projects straight into UserResponse so the password column is never read
+    @Query("SELECT new com.example.userservice.dto.UserResponse(" +
+            "u.id, u.username, u.email, u.fullName, u.phoneNumber, u.role, u.accountType, " +
+            "u.isActive, u.isEmailVerified, u.vipExpiryDate, u.createdAt, u.lastLoginAt) " +
+            "FROM User u " +
+            "WHERE u.id > :afterId " +
+            "AND (:isActive IS NULL OR u.isActive = :isActive) " +
+            "AND (:accountType IS NULL OR u.accountType = :accountType) " +
+            "AND (:role IS NULL OR u.role = :role) " +
+            "ORDER BY u.id")
+    List<UserResponse> findPageAfterId(@Param("afterId") Long afterId,
+                                       @Param("isActive") Boolean isActive,
+                                       @Param("accountType") AccountType accountType,
+                                       @Param("role") Role role,
+                                       Pageable pageable);
+    
+    // Forward-only cursor for bulk export; must be consumed inside a transaction and closed
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    Stream<User> streamAllByOrderByIdAsc();
 }
\ No newline at end of file
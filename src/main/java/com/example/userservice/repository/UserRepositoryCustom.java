@@ -0,0 +1,22 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.entity.User;
+
+import java.util.Collection;
+import java.util.Optional;
+
+// Lookups that go through the second-level cache instead of issuing a query per call
+public interface UserRepositoryCustom {
+
+    // username -> id from a local cache, then the row from the entity cache
+    Optional<User> findByUsername(String username);
+
+    // Same for email; emails can change, so a cached id is re-checked against the loaded row
+    Optional<User> findByEmail(String email);
+
+    // Login accepts either; usernames are tried first
+    Optional<User> findByUsernameOrEmail(String usernameOrEmail);
+
+    // For writes that bypass Hibernate (JDBC batches); evicts once the surrounding transaction completes
+    void evictFromCacheAfterCommit(Collection<Long> ids);
+}
@@ -0,0 +1,117 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+// Lookups run in a read-only transaction like the derived queries they replace, so they also work
+// outside an open session (the JWT filter runs before open-in-view binds one)
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // username/email -> id. Not Hibernate @NaturalId: an entity gets only one, and Hibernate 6.3 would
+    // replace the named uk_users_username constraint with its own. Entries are never invalidated on
+    // write; a cached id is only trusted if the row loaded for it still carries the key.
+    private final Cache<String, Long> idsByUsername;
+    private final Cache<String, Long> idsByEmail;
+
+    public UserRepositoryImpl(@Value("${users.cache.max-size}") long maxSize,
+                              @Value("${users.cache.ttl}") Duration ttl,
+                              MeterRegistry meterRegistry) {
+        this.idsByUsername = buildIdCache(maxSize, ttl);
+        this.idsByEmail = buildIdCache(maxSize, ttl);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, idsByUsername, "userIdByUsernameCache");
+        CaffeineCacheMetrics.monitor(meterRegistry, idsByEmail, "userIdByEmailCache");
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<User> findByUsername(String username) {
+        return findByKey(idsByUsername, "username", username, User::getUsername);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<User> findByEmail(String email) {
+        return findByKey(idsByEmail, "email", email, User::getEmail);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<User> findByUsernameOrEmail(String usernameOrEmail) {
+        Optional<User> byUsername = findByUsername(usernameOrEmail);
+        if (byUsername.isPresent()) {
+            return byUsername;
+        }
+        return findByEmail(usernameOrEmail);
+    }
+
+    @Override
+    public void evictFromCacheAfterCommit(Collection<Long> ids) {
+        jakarta.persistence.Cache cache = entityManager.getEntityManagerFactory().getCache();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ids.forEach(id -> cache.evict(User.class, id));
+            return;
+        }
+
+        List<Long> pending = List.copyOf(ids);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                pending.forEach(id -> cache.evict(User.class, id));
+            }
+        });
+    }
+
+    // The row itself comes from find(), i.e. the persistence context or the second-level cache
+    private Optional<User> findByKey(Cache<String, Long> ids, String attribute, String value,
+                                     Function<User, String> getter) {
+        Long cachedId = ids.getIfPresent(value);
+        if (cachedId != null) {
+            User user = entityManager.find(User.class, cachedId);
+            if (user != null && value.equals(getter.apply(user))) {
+                return Optional.of(user);
+            }
+            ids.invalidate(value);
+        }
+
+        List<Long> found = entityManager.createQuery("SELECT u.id FROM User u WHERE u." + attribute + " = :value", Long.class)
+                .setParameter("value", value)
+                .getResultList();
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+
+        User user = entityManager.find(User.class, found.get(0));
+        if (user == null) {
+            return Optional.empty();
+        }
+        ids.put(value, user.getId());
+        return Optional.of(user);
+    }
+
+    private static Cache<String, Long> buildIdCache(long maxSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+}
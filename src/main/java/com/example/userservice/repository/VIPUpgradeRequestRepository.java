@@ -1,21 +1,38 @@
 package com.example.userservice.repository;
 
+import com.example.userservice.dto.VIPUpgradeRequestDTO;
 import com.example.userservice.entity.VIPUpgradeRequest;
-import com.example.userservice.entity.User;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 @Repository
-public interface VIPUpgradeRequestRepository extends JpaRepository<VIPUpgradeRequest, Long> {
+public interface VIPUpgradeRequestRepository extends JpaRepository<VIPUpgradeRequest, Long>,
+        VIPUpgradeRequestRepositoryCustom {
 
-    List<VIPUpgradeRequest> findByStatus(VIPUpgradeRequest.RequestStatus status);
+    // Listings project straight into the DTO with the user joined in, so each list is a single SELECT
+    String DTO_SELECT = "SELECT new com.example.userservice.dto.VIPUpgradeRequestDTO(" +
+            "r.id, u.id, u.username, u.fullName, r.requestedMonths, r.message, " +
+            "r.status, r.requestDate, r.processedDate, r.adminNote) " +
+            "FROM VIPUpgradeRequest r JOIN r.user u ";
 
-    List<VIPUpgradeRequest> findByUserOrderByRequestDateDesc(User user);
+    @Query(DTO_SELECT + "WHERE u.id = :userId ORDER BY r.requestDate DESC")
+    List<VIPUpgradeRequestDTO> findDtosByUserIdOrderByRequestDateDesc(@Param("userId") Long userId);
 
-    Optional<VIPUpgradeRequest> findByUserAndStatus(User user, VIPUpgradeRequest.RequestStatus status);
+    @Query("SELECT r FROM VIPUpgradeRequest r JOIN FETCH r.user WHERE r.id = :id")
+    Optional<VIPUpgradeRequest> findWithUserById(@Param("id") Long id);
 
-    List<VIPUpgradeRequest> findAllByOrderByRequestDateDesc();
+    // Bulk processing writes through JDBC, so the loaded rows are never dirty-checked
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    @Query("SELECT r FROM VIPUpgradeRequest r JOIN FETCH r.user WHERE r.id IN :ids")
+    List<VIPUpgradeRequest> findAllWithUserByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,18 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.dto.VIPUpgradeRequestDTO;
+import com.example.userservice.entity.VIPUpgradeRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface VIPUpgradeRequestRepositoryCustom {
+
+    // Newest first, keyset on (requestDate, id); cursor values are null for the first page
+    List<VIPUpgradeRequestDTO> findDtoPage(VIPUpgradeRequest.RequestStatus status,
+                                           LocalDateTime from,
+                                           LocalDateTime to,
+                                           LocalDateTime cursorDate,
+                                           Long cursorId,
+                                           int limit);
+}
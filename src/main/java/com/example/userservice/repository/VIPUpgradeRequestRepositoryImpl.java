@@ -0,0 +1,61 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.dto.VIPUpgradeRequestDTO;
+import com.example.userservice.entity.VIPUpgradeRequest;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class VIPUpgradeRequestRepositoryImpl implements VIPUpgradeRequestRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<VIPUpgradeRequestDTO> findDtoPage(VIPUpgradeRequest.RequestStatus status,
+                                                  LocalDateTime from,
+                                                  LocalDateTime to,
+                                                  LocalDateTime cursorDate,
+                                                  Long cursorId,
+                                                  int limit) {
+        // Only the filters actually supplied end up in the WHERE clause, so every variant
+        // stays a plain range scan on one of the composite indexes
+        StringBuilder jpql = new StringBuilder(VIPUpgradeRequestRepository.DTO_SELECT).append("WHERE 1 = 1");
+        if (status != null) {
+            jpql.append(" AND r.status = :status");
+        }
+        if (from != null) {
+            jpql.append(" AND r.requestDate >= :from");
+        }
+        if (to != null) {
+            jpql.append(" AND r.requestDate < :to");
+        }
+        if (cursorDate != null) {
+            // Row-value comparison: one index range bound instead of an OR the planner may not use.
+            // The casts give Hibernate the tuple's element types, which it cannot infer from parameters
+            jpql.append(" AND (r.requestDate, r.id) < (cast(:cursorDate as LocalDateTime), cast(:cursorId as Long))");
+        }
+        jpql.append(" ORDER BY r.requestDate DESC, r.id DESC");
+
+        TypedQuery<VIPUpgradeRequestDTO> query =
+                entityManager.createQuery(jpql.toString(), VIPUpgradeRequestDTO.class);
+        if (status != null) {
+            query.setParameter("status", status);
+        }
+        if (from != null) {
+            query.setParameter("from", from);
+        }
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        if (cursorDate != null) {
+            query.setParameter("cursorDate", cursorDate);
+            query.setParameter("cursorId", cursorId);
+        }
+
+        return query.setMaxResults(limit).getResultList();
+    }
+}
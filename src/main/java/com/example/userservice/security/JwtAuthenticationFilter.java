@@ -1,5 +1,7 @@
 package com.example.userservice.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -15,46 +17,107 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
+    // The default name is rebuilt by string concatenation on every request
+    private static final String ALREADY_FILTERED_ATTRIBUTE =
+            JwtAuthenticationFilter.class.getName() + ALREADY_FILTERED_SUFFIX;
+    
     @Autowired
     private JwtTokenProvider tokenProvider;
     
     @Autowired
     private UserDetailsService userDetailsService;
     
+    @Autowired
+    private PrincipalCache principalCache;
+    
+    @Autowired
+    private TokenVersionService tokenVersionService;
+    
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    
+    private final Timer filterTimer;
+    
+    // Stateless, so shared by all requests instead of created per request
+    private final WebAuthenticationDetailsSource detailsSource = new WebAuthenticationDetailsSource();
+    
+    // Created once; a method reference at the call site would allocate a new instance per request
+    private final Function<String, UserDetails> principalLoader =
+            username -> userDetailsService.loadUserByUsername(username);
+    
+    public JwtAuthenticationFilter(MeterRegistry meterRegistry) {
+        this.filterTimer = Timer.builder("security.jwt.filter")
+                .description("Time spent authenticating the bearer token")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+    
+    // Public auth endpoints and the JWKS never look at the caller; logout is the one that does
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getServletPath();
+        return (path.startsWith("/api/auth/") && !path.equals("/api/auth/logout"))
+                || path.equals("/.well-known/jwks.json");
+    }
+    
+    @Override
+    protected String getAlreadyFilteredAttributeName() {
+        return ALREADY_FILTERED_ATTRIBUTE;
+    }
+    
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
                                     HttpServletResponse response, 
                                     FilterChain filterChain) throws ServletException, IOException {
+        long start = System.nanoTime();
         try {
-            String jwt = getJwtFromRequest(request);
+            String jwt = tokenProvider.resolveToken(request);
             
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String username = tokenProvider.getUsernameFromToken(jwt);
-                
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication = 
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            JwtTokenProvider.VerifiedToken token = StringUtils.hasText(jwt)
+                    ? tokenProvider.verify(jwt)
+                    : null;
+            
+            if (token != null) {
+                UserDetails userDetails = resolvePrincipal(token);
                 
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                if (userDetails != null) {
+                    UsernamePasswordAuthenticationToken authentication = 
+                            new UsernamePasswordAuthenticationToken(
+                                    userDetails, null, userDetails.getAuthorities());
+                    authentication.setDetails(detailsSource.buildDetails(request));
+                    
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
         } catch (Exception ex) {
             logger.error("Could not set user authentication in security context", ex);
+        } finally {
+            filterTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
         
         filterChain.doFilter(request, response);
     }
     
-    private String getJwtFromRequest(HttpServletRequest request) {
-        String bearerToken = request.getHeader("Authorization");
-        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
-            return bearerToken.substring(7);
+    private UserDetails resolvePrincipal(JwtTokenProvider.VerifiedToken token) {
+        UserPrincipal principal = token.statelessPrincipal();
+        if (principal != null) {
+            // Deactivated users and superseded tokens fail the version check
+            if (!tokenVersionService.isCurrent(principal.getId(), principal.getTokenVersion())) {
+                return null;
+            }
+        } else {
+            principal = (UserPrincipal) principalCache.get(token.claims().getSubject(), principalLoader);
         }
-        return null;
+        
+        // Logged-out tokens and tokens issued before a password change, from memory
+        return tokenRevocationService.isRevoked(principal.getId(), token.tokenId(), token.issuedAtSeconds())
+                ? null
+                : principal;
     }
 }
\ No newline at end of file
@@ -0,0 +1,192 @@
+package com.example.userservice.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Asymmetric keys for access tokens. Every key in the PKCS12 keystore (alias = kid) verifies tokens and
+// is published as a JWK; the active one signs. Certificate-only entries are verification keys that can
+// no longer sign, which is how a retired key stays valid until its tokens expire. Without a keystore a
+// key pair is generated at startup, so tokens do not survive a restart or verify on another node; that
+// is only allowed when jwt.signing.allow-ephemeral-key is set (the dev profile), otherwise startup fails.
+@Component
+@Slf4j
+public class JwtSigningKeys {
+
+    private final String activeKid;
+    private final PrivateKey signingKey;
+    private final SignatureAlgorithm signatureAlgorithm;
+
+    // kid -> public key, for the parser's key locator
+    private final Map<String, PublicKey> verificationKeys;
+
+    private final String jwkSetJson;
+    private final String jwkSetETag;
+
+    public JwtSigningKeys(@Value("${jwt.signing.keystore.location}") String keystoreLocation,
+                          @Value("${jwt.signing.keystore.password}") String keystorePassword,
+                          @Value("${jwt.signing.active-kid}") String activeKid,
+                          @Value("${jwt.signing.ephemeral-key-algorithm}") String ephemeralKeyAlgorithm,
+                          @Value("${jwt.signing.allow-ephemeral-key}") boolean allowEphemeralKey,
+                          ResourceLoader resourceLoader) {
+        Map<String, PublicKey> publicKeys = new LinkedHashMap<>();
+        Map<String, PrivateKey> privateKeys = new LinkedHashMap<>();
+
+        if (StringUtils.hasText(keystoreLocation)) {
+            loadKeystore(resourceLoader, keystoreLocation, keystorePassword.toCharArray(), publicKeys, privateKeys);
+        } else {
+            if (!allowEphemeralKey) {
+                throw new IllegalStateException("No jwt.signing.keystore.location configured; every restart "
+                        + "would sign with a new key. Configure a keystore, or set "
+                        + "jwt.signing.allow-ephemeral-key=true (dev profile) for development");
+            }
+            if (!(Jwts.SIG.get().get(ephemeralKeyAlgorithm) instanceof SignatureAlgorithm algorithm)) {
+                throw new IllegalStateException("jwt.signing.ephemeral-key-algorithm must be an asymmetric "
+                        + "signature algorithm (ES256, RS256, ...), not " + ephemeralKeyAlgorithm);
+            }
+            KeyPair keyPair = algorithm.keyPair().build();
+            String kid = Jwks.builder().key(keyPair.getPublic()).idFromThumbprint().build().getId();
+            publicKeys.put(kid, keyPair.getPublic());
+            privateKeys.put(kid, keyPair.getPrivate());
+            log.warn("No jwt.signing.keystore configured; signing with ephemeral {} key {}", ephemeralKeyAlgorithm, kid);
+        }
+
+        if (!StringUtils.hasText(activeKid)) {
+            if (privateKeys.size() != 1) {
+                throw new IllegalStateException("jwt.signing.active-kid must name one of " + privateKeys.keySet());
+            }
+            activeKid = privateKeys.keySet().iterator().next();
+        }
+        if (!privateKeys.containsKey(activeKid)) {
+            throw new IllegalStateException("No private key for jwt.signing.active-kid " + activeKid);
+        }
+
+        this.activeKid = activeKid;
+        this.signingKey = privateKeys.get(activeKid);
+        this.signatureAlgorithm = algorithmFor(publicKeys.get(activeKid));
+        this.verificationKeys = Collections.unmodifiableMap(publicKeys);
+
+        // The key set only changes on restart, so it is serialized and hashed once
+        List<String> jwks = new ArrayList<>();
+        publicKeys.forEach((kid, publicKey) -> jwks.add(Jwks.json(toJwk(kid, publicKey))));
+        this.jwkSetJson = jwks.stream().collect(Collectors.joining(",", "{\"keys\":[", "]}"));
+        this.jwkSetETag = "\"" + sha256(jwkSetJson) + "\"";
+
+        log.info("JWT signing key {} ({}), verification keys {}", this.activeKid, signatureAlgorithm.getId(),
+                verificationKeys.keySet());
+    }
+
+    public String getActiveKid() {
+        return activeKid;
+    }
+
+    public PrivateKey getSigningKey() {
+        return signingKey;
+    }
+
+    public SignatureAlgorithm getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    // null for an unknown kid, which the parser reports as an unverifiable token
+    public PublicKey getVerificationKey(String kid) {
+        return kid != null ? verificationKeys.get(kid) : null;
+    }
+
+    public String getJwkSetJson() {
+        return jwkSetJson;
+    }
+
+    public String getJwkSetETag() {
+        return jwkSetETag;
+    }
+
+    private static void loadKeystore(ResourceLoader resourceLoader, String location, char[] password,
+                                     Map<String, PublicKey> publicKeys, Map<String, PrivateKey> privateKeys) {
+        try (InputStream in = resourceLoader.getResource(location).getInputStream()) {
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(in, password);
+
+            for (String alias : Collections.list(keyStore.aliases())) {
+                if (keyStore.getCertificate(alias) == null) {
+                    continue;
+                }
+                PublicKey publicKey = keyStore.getCertificate(alias).getPublicKey();
+                algorithmFor(publicKey);
+                publicKeys.put(alias, publicKey);
+
+                if (keyStore.isKeyEntry(alias)) {
+                    Key key = keyStore.getKey(alias, password);
+                    if (key instanceof PrivateKey privateKey) {
+                        privateKeys.put(alias, privateKey);
+                    }
+                }
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot load JWT signing keystore " + location, e);
+        }
+
+        if (publicKeys.isEmpty()) {
+            throw new IllegalStateException("JWT signing keystore " + location + " has no keys");
+        }
+    }
+
+    // RSA keys sign RS256; EC keys sign with the ES algorithm of their curve
+    private static SignatureAlgorithm algorithmFor(PublicKey publicKey) {
+        if (publicKey instanceof RSAPublicKey) {
+            return Jwts.SIG.RS256;
+        }
+        if (publicKey instanceof ECPublicKey ecKey) {
+            return switch (ecKey.getParams().getCurve().getField().getFieldSize()) {
+                case 256 -> Jwts.SIG.ES256;
+                case 384 -> Jwts.SIG.ES384;
+                case 521 -> Jwts.SIG.ES512;
+                default -> throw new IllegalStateException("Unsupported EC curve for JWT signing");
+            };
+        }
+        throw new IllegalStateException("Unsupported JWT signing key type " + publicKey.getAlgorithm());
+    }
+
+    private static PublicJwk<?> toJwk(String kid, PublicKey publicKey) {
+        return Jwks.builder().key(publicKey)
+                .id(kid)
+                .algorithm(algorithmFor(publicKey).getId())
+                .publicKeyUse("sig")
+                .build();
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
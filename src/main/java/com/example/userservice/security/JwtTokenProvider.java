@@ -1,66 +1,209 @@
 package com.example.userservice.security;
 
+import com.example.userservice.enums.AccountType;
+import com.example.userservice.enums.Role;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
-import javax.crypto.SecretKey;
-import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtTokenProvider {
     
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    private static final String CLAIM_USER_ID = "uid";
+    private static final String CLAIM_ROLE = "role";
+    private static final String CLAIM_ACCOUNT_TYPE = "acct";
+    private static final String CLAIM_TOKEN_VERSION = "ver";
     
     @Value("${jwt.expiration}")
     private Long jwtExpiration;
     
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    @Value("${jwt.verified-cache.max-size}")
+    private long verifiedCacheMaxSize;
+    
+    @Value("${jwt.stateless-claims.enabled}")
+    private boolean statelessClaims;
+    
+    @Autowired
+    private JwtSigningKeys signingKeys;
+    
+    private JwtParser jwtParser;
+    
+    // Token -> what it was verified to carry, kept until the token expires. Keyed by the token itself
+    // rather than a digest of it: a lookup then costs no hashing or allocation, for ~400 bytes per entry.
+    private Cache<String, VerifiedToken> verifiedTokens;
+    
+    // A verified token with the values the JWT filter reads decoded once, so a cache hit allocates nothing
+    public record VerifiedToken(Claims claims, long tokenId, long issuedAtSeconds, long expiresAtMillis,
+                                UserPrincipal statelessPrincipal) {
+    }
+    
+    @PostConstruct
+    void init() {
+        // The kid header picks the verification key, so tokens signed before a rotation stay valid
+        jwtParser = Jwts.parser()
+                .keyLocator(header -> header instanceof ProtectedHeader protectedHeader
+                        ? signingKeys.getVerificationKey(protectedHeader.getKeyId())
+                        : null)
+                .build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken verified, long currentTime) {
+                        long remainingMillis = verified.expiresAtMillis() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+                    }
+                    
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken verified, long currentTime,
+                                                  long currentDuration) {
+                        return currentDuration;
+                    }
+                    
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken verified, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
     
     public String generateToken(Authentication authentication) {
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+        return generateToken((UserDetails) authentication.getPrincipal());
+    }
+    
+    // Also used on refresh, where there is no Authentication, only the reloaded principal
+    public String generateToken(UserDetails userDetails) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpiration);
         
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
+                .header().keyId(signingKeys.getActiveKid()).and()
+                .id(newTokenId())
                 .subject(userDetails.getUsername())
                 .issuedAt(now)
-                .expiration(expiryDate)
-                .signWith(getSigningKey())
-                .compact();
+                .expiration(expiryDate);
+        
+        if (statelessClaims && userDetails instanceof UserPrincipal principal) {
+            builder.claim(CLAIM_USER_ID, principal.getId())
+                    .claim(CLAIM_ROLE, principal.getRole().name())
+                    .claim(CLAIM_ACCOUNT_TYPE, principal.getAccountType().name())
+                    .claim(CLAIM_TOKEN_VERSION, principal.getTokenVersion());
+        }
+        
+        return builder.signWith(signingKeys.getSigningKey(), signingKeys.getSignatureAlgorithm()).compact();
     }
     
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    // Builds the principal from a token minted in stateless-claims mode; null if the claims are absent
+    public UserPrincipal getPrincipalFromClaims(Claims claims) {
+        Long userId = claims.get(CLAIM_USER_ID, Long.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        String accountType = claims.get(CLAIM_ACCOUNT_TYPE, String.class);
+        Integer tokenVersion = claims.get(CLAIM_TOKEN_VERSION, Integer.class);
+        if (userId == null || role == null || accountType == null || tokenVersion == null) {
+            return null;
+        }
         
-        return claims.getSubject();
+        return new UserPrincipal(
+                userId,
+                claims.getSubject(),
+                null,
+                Role.valueOf(role),
+                AccountType.valueOf(accountType),
+                true,
+                tokenVersion
+        );
     }
     
-    public boolean validateToken(String token) {
+    // jti as a 64-bit number, so revocations can be kept in primitive long maps; 0 if absent or foreign
+    public static long getTokenId(Claims claims) {
+        String jti = claims.getId();
+        if (jti == null) {
+            return 0L;
+        }
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
+            return Long.parseUnsignedLong(jti, 16);
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+    
+    public boolean isStatelessClaimsEnabled() {
+        return statelessClaims;
+    }
+    
+    // Verifies signature and expiry once; null if the token is not valid
+    public VerifiedToken verify(String token) {
+        VerifiedToken cached = verifiedTokens.getIfPresent(token);
+        if (cached != null && cached.expiresAtMillis() > System.currentTimeMillis()) {
+            return cached;
+        }
+        
+        try {
+            Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+            VerifiedToken verified = new VerifiedToken(
+                    claims,
+                    getTokenId(claims),
+                    claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() / 1000 : 0L,
+                    claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE,
+                    statelessClaims ? getPrincipalFromClaims(claims) : null);
+            if (claims.getExpiration() != null) {
+                verifiedTokens.put(token, verified);
+            }
+            return verified;
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return null;
+        }
+    }
+    
+    public Optional<Claims> validateAndGetClaims(String token) {
+        return Optional.ofNullable(verify(token)).map(VerifiedToken::claims);
+    }
+    
+    // Bearer token from the Authorization header, or null
+    public String resolveToken(HttpServletRequest request) {
+        String bearerToken = request.getHeader("Authorization");
+        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
+            return bearerToken.substring(7);
         }
+        return null;
+    }
+    
+    public String getUsernameFromToken(String token) {
+        return validateAndGetClaims(token)
+                .map(Claims::getSubject)
+                .orElseThrow(() -> new JwtException("Invalid JWT token"));
+    }
+    
+    public boolean validateToken(String token) {
+        return verify(token) != null;
     }
     
     public Long getExpirationTime() {
         return jwtExpiration;
     }
-}
\ No newline at end of file
+    
+    // Only has to be unique among live tokens; 0 is reserved for "no jti"
+    private static String newTokenId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0L);
+        return Long.toHexString(id);
+    }
+}
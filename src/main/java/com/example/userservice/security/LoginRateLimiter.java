@@ -0,0 +1,213 @@
+package com.example.userservice.security;
+
+import com.example.userservice.exception.TooManyRequestsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Login attempts per account and per client IP, checked before the password is hashed, plus a lockout
+// after repeated failures. Account buckets are keyed by the login as typed; once a failure shows that it
+// names a user, it is pointed at that user's bucket, so username and email share one budget. Each bucket is one AtomicLong holding its GCRA "theoretical arrival
+// time": equivalent to a token bucket, but an attempt is a single CAS. Buckets live in bounded Caffeine
+// caches: a bucket that has refilled carries no state and expires. When a table is full, other keys are
+// evicted (W-TinyLFU), never shared. Buckets with failures or a lockout weigh nothing, so a flood of
+// one-off names cannot evict them; failures follow a password hash, which bounds how many there are.
+@Component
+@Slf4j
+public class LoginRateLimiter {
+
+    private final boolean enabled;
+    private final int maxFailures;
+    private final long lockoutNanos;
+
+    private final BucketTable accounts;
+    private final BucketTable clientIps;
+
+    private final Counter lockouts;
+
+    public LoginRateLimiter(@Value("${security.login.rate-limit.enabled}") boolean enabled,
+                            @Value("${security.login.rate-limit.per-account.burst}") int accountBurst,
+                            @Value("${security.login.rate-limit.per-account.per-minute}") int accountPerMinute,
+                            @Value("${security.login.rate-limit.per-ip.burst}") int ipBurst,
+                            @Value("${security.login.rate-limit.per-ip.per-minute}") int ipPerMinute,
+                            @Value("${security.login.rate-limit.max-failures}") int maxFailures,
+                            @Value("${security.login.rate-limit.lockout-duration}") Duration lockoutDuration,
+                            @Value("${security.login.rate-limit.max-entries}") int maxEntries,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxFailures = maxFailures;
+        this.lockoutNanos = lockoutDuration.toNanos();
+
+        this.accounts = new BucketTable("account", accountBurst, accountPerMinute, maxEntries, meterRegistry);
+        this.clientIps = new BucketTable("ip", ipBurst, ipPerMinute, maxEntries, meterRegistry);
+
+        this.lockouts = meterRegistry.counter("auth.login.lockouts");
+    }
+
+    // Consumes one attempt from both buckets or throws; called before authentication
+    public void acquire(String usernameOrEmail, String clientIp) {
+        if (!enabled) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        long waitNanos = clientIps.tryAcquire(clientIp, now);
+        if (waitNanos == 0) {
+            waitNanos = accounts.tryAcquire(accountKey(usernameOrEmail), now);
+        }
+        if (waitNanos > 0) {
+            throw new TooManyRequestsException("Too many login attempts, please retry later",
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+        }
+    }
+
+    // userId: the user the login names, if any (the password was wrong or the account is inactive)
+    public void recordFailure(String usernameOrEmail, Long userId) {
+        if (!enabled) {
+            return;
+        }
+
+        String key = accountKey(usernameOrEmail);
+        // Through compute so the cache re-reads the bucket's weight and expiry: failures keep it around,
+        // safe from eviction, for a lockout period
+        if (userId == null) {
+            accounts.buckets.asMap().computeIfPresent(key, (k, bucket) -> countFailure(k, bucket));
+            return;
+        }
+
+        // The user's bucket takes over the typed one (or absorbs its rate if it already exists), then the
+        // typed key is pointed at it: later attempts through any of the user's logins hit the same bucket
+        Bucket typed = accounts.buckets.getIfPresent(key);
+        Bucket shared = accounts.buckets.asMap().compute(userKey(userId), (k, bucket) -> {
+            if (bucket == null) {
+                bucket = typed != null ? typed : new Bucket(System.nanoTime());
+            } else if (typed != null && typed != bucket) {
+                bucket.theoreticalArrival.accumulateAndGet(typed.theoreticalArrival.get(), Math::max);
+            }
+            return countFailure(k, bucket);
+        });
+        accounts.buckets.put(key, shared);
+    }
+
+    public void recordSuccess(String usernameOrEmail) {
+        if (!enabled) {
+            return;
+        }
+
+        accounts.buckets.asMap().computeIfPresent(accountKey(usernameOrEmail), (k, bucket) -> {
+            bucket.failures.set(0);
+            return bucket;
+        });
+    }
+
+    private Bucket countFailure(String key, Bucket bucket) {
+        if (bucket.failures.incrementAndGet() >= maxFailures) {
+            // Push the next allowed attempt past the lockout; the failure count starts over afterwards
+            bucket.failures.set(0);
+            long lockedUntil = System.nanoTime() + lockoutNanos + accounts.burstTolerance;
+            bucket.theoreticalArrival.accumulateAndGet(lockedUntil, Math::max);
+            lockouts.increment();
+            log.warn("Login locked for {} after {} failed attempts", key, maxFailures);
+        }
+        return bucket;
+    }
+
+    // Case variants of the same login must share a bucket. Prefixed so a typed login cannot collide
+    // with a user id key
+    private static String accountKey(String usernameOrEmail) {
+        return "login:" + (usernameOrEmail == null ? "" : usernameOrEmail.trim().toLowerCase(Locale.ROOT));
+    }
+
+    private static String userKey(long userId) {
+        return "user:" + userId;
+    }
+
+    private static final class Bucket {
+        final AtomicLong theoreticalArrival;
+        final AtomicInteger failures = new AtomicInteger();
+
+        Bucket(long now) {
+            this.theoreticalArrival = new AtomicLong(now);
+        }
+    }
+
+    private final class BucketTable implements Expiry<String, Bucket> {
+        private final long emissionInterval;
+        private final long burstTolerance;
+        private final Cache<String, Bucket> buckets;
+        private final Counter limited;
+
+        BucketTable(String scope, int burst, int perMinute, int maxEntries, MeterRegistry meterRegistry) {
+            this.emissionInterval = TimeUnit.MINUTES.toNanos(1) / perMinute;
+            this.burstTolerance = emissionInterval * (burst - 1);
+            this.buckets = Caffeine.newBuilder()
+                    .maximumWeight(maxEntries)
+                    .weigher((String key, Bucket bucket) -> isHeld(bucket, System.nanoTime()) ? 0 : 1)
+                    .expireAfter(this)
+                    .build();
+            this.limited = Counter.builder("auth.login.rate.limited")
+                    .tag("scope", scope)
+                    .register(meterRegistry);
+            Gauge.builder("auth.login.rate.limiter.buckets", buckets, Cache::estimatedSize)
+                    .tag("scope", scope)
+                    .register(meterRegistry);
+        }
+
+        // 0 if an attempt was consumed, otherwise how long until the next one is allowed
+        long tryAcquire(String key, long now) {
+            Bucket bucket = buckets.get(key, k -> new Bucket(now));
+            while (true) {
+                long tat = bucket.theoreticalArrival.get();
+                long start = Math.max(tat, now);
+                long waitNanos = start - burstTolerance - now;
+                if (waitNanos > 0) {
+                    limited.increment();
+                    return waitNanos;
+                }
+                if (bucket.theoreticalArrival.compareAndSet(tat, start + emissionInterval)) {
+                    return 0;
+                }
+            }
+        }
+
+        // Counting failures or locked out: state an attacker would like to see evicted
+        private boolean isHeld(Bucket bucket, long now) {
+            return bucket.failures.get() > 0 || bucket.theoreticalArrival.get() - burstTolerance > now;
+        }
+
+        // A bucket is idle once refilled; failures keep it (and the count) around for a lockout period.
+        // Reads come before the attempt they serve, so they allow for that attempt's emission interval
+        private long idleAfter(Bucket bucket, long now, long pendingNanos) {
+            long idleAt = Math.max(bucket.theoreticalArrival.get(), now) + pendingNanos
+                    + (bucket.failures.get() > 0 ? lockoutNanos : 0);
+            return Math.max(idleAt - now, 0);
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Bucket bucket, long currentTime) {
+            return idleAfter(bucket, currentTime, emissionInterval);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Bucket bucket, long currentTime, long currentDuration) {
+            return idleAfter(bucket, currentTime, 0);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Bucket bucket, long currentTime, long currentDuration) {
+            return idleAfter(bucket, currentTime, emissionInterval);
+        }
+    }
+}
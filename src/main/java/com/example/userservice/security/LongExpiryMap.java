@@ -0,0 +1,146 @@
+package com.example.userservice.security;
+
+import java.util.concurrent.locks.StampedLock;
+
+// Open-addressing long -> long map whose entries carry an expiry (epoch seconds). Entries are stored
+// inline in one long[] as (key, value, expiresAt) triples, 24 bytes each and no per-entry objects.
+// Lookups are optimistic StampedLock reads, so the hot path takes no lock; writes take the write lock.
+// Key 0 marks a free slot and cannot be stored.
+final class LongExpiryMap {
+
+    static final long NO_VALUE = Long.MIN_VALUE;
+
+    private static final int STRIDE = 3;
+    private static final int INITIAL_SLOTS = 64;
+
+    private final StampedLock lock = new StampedLock();
+    private final int maxEntries;
+
+    private long[] table = new long[INITIAL_SLOTS * STRIDE];
+    private volatile int size;
+    // Earliest expiry in the table; a purge before then has nothing to drop and skips the scan
+    private long nextExpiry = Long.MAX_VALUE;
+
+    LongExpiryMap(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    // Value stored for the key, or NO_VALUE if absent or expired at the given time
+    long get(long key, long now) {
+        long stamp = lock.tryOptimisticRead();
+        long value = find(table, key, now);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = find(table, key, now);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    // Inserts, or raises the value and expiry of an existing entry (both only ever move forward).
+    // Returns false when the key is new and the map is at maxEntries.
+    boolean putMax(long key, long value, long expiresAt) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotOf(table, key);
+            if (table[slot] == key) {
+                table[slot + 1] = Math.max(table[slot + 1], value);
+                table[slot + 2] = Math.max(table[slot + 2], expiresAt);
+                return true;
+            }
+            if (size >= maxEntries) {
+                return false;
+            }
+
+            table[slot] = key;
+            table[slot + 1] = value;
+            table[slot + 2] = expiresAt;
+            size++;
+            nextExpiry = Math.min(nextExpiry, expiresAt);
+            // Load factor 0.5 keeps probe sequences short
+            if (size * 2 > table.length / STRIDE) {
+                table = rehash(table, table.length * 2, Long.MIN_VALUE);
+            }
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Drops entries that expired before the given time, in a single pass once the earliest one is due
+    int purgeExpired(long now) {
+        long stamp = lock.writeLock();
+        try {
+            if (nextExpiry > now) {
+                return 0;
+            }
+            int before = size;
+            table = rehash(table, table.length, now);
+            return before - size;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private long[] rehash(long[] source, int length, long now) {
+        long[] target = new long[length];
+        int count = 0;
+        long earliest = Long.MAX_VALUE;
+        for (int i = 0; i < source.length; i += STRIDE) {
+            long key = source[i];
+            if (key == 0 || source[i + 2] <= now) {
+                continue;
+            }
+            int slot = slotOf(target, key);
+            target[slot] = key;
+            target[slot + 1] = source[i + 1];
+            target[slot + 2] = source[i + 2];
+            count++;
+            earliest = Math.min(earliest, source[i + 2]);
+        }
+        size = count;
+        nextExpiry = earliest;
+        return target;
+    }
+
+    // May run against a table being written to; the caller validates the stamp before trusting the result
+    private static long find(long[] table, long key, long now) {
+        int slots = table.length / STRIDE;
+        int index = mix(key) & (slots - 1);
+        for (int probes = 0; probes < slots; probes++) {
+            int slot = index * STRIDE;
+            long current = table[slot];
+            if (current == key) {
+                return table[slot + 2] > now ? table[slot + 1] : NO_VALUE;
+            }
+            if (current == 0) {
+                return NO_VALUE;
+            }
+            index = (index + 1) & (slots - 1);
+        }
+        return NO_VALUE;
+    }
+
+    // Slot holding the key, or the free slot where it would go
+    private static int slotOf(long[] table, long key) {
+        int slots = table.length / STRIDE;
+        int index = mix(key) & (slots - 1);
+        while (table[index * STRIDE] != 0 && table[index * STRIDE] != key) {
+            index = (index + 1) & (slots - 1);
+        }
+        return index * STRIDE;
+    }
+
+    // Fibonacci hashing, so sequential user ids spread over the table
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.userservice.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Refresh tokens this node has seen rotated, so a replayed token is rejected and its family revoked
+// without reading refresh_tokens first. Tokens revoked otherwise (sign-out) are not added. The table
+// stays authoritative: anything not found here simply takes the database path.
+@Component
+public class RefreshTokenRevocationSet {
+
+    private final int maxEntries;
+    private final int bitCount;
+    private final int hashCount;
+
+    // Bloom filter over the token digest: almost every presented token was never revoked, and for
+    // those a few bit reads answer without touching the map. Rebuilt from the map on each purge.
+    private volatile AtomicLongArray bits;
+
+    // token hash -> family and expiry, confirms Bloom hits (which can be false positives)
+    private final Map<String, Revoked> revoked = new ConcurrentHashMap<>();
+
+    private record Revoked(String familyId, long expiresAtMillis) {
+    }
+
+    public RefreshTokenRevocationSet(@Value("${jwt.refresh.revocation-set.max-entries}") int maxEntries,
+                                     @Value("${jwt.refresh.revocation-set.false-positive-rate}") double falsePositiveRate,
+                                     MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        // Standard sizing: m = -n ln p / (ln 2)^2 bits, k = m / n ln 2 hash functions
+        long optimalBits = (long) Math.ceil(-maxEntries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.min(Math.max(optimalBits, Long.SIZE), Integer.MAX_VALUE - Long.SIZE);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / maxEntries * Math.log(2)));
+        this.bits = newBits();
+
+        meterRegistry.gaugeMapSize("auth.refresh.revocation.set.size", List.of(), revoked);
+    }
+
+    // digest is the SHA-256 of the token, tokenHash its hex form
+    public void add(byte[] digest, String tokenHash, String familyId, LocalDateTime expiresAt) {
+        // Bounded: once full, further revocations are only recorded in the table
+        if (revoked.size() >= maxEntries && !revoked.containsKey(tokenHash)) {
+            return;
+        }
+
+        long expiresAtMillis = expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        revoked.put(tokenHash, new Revoked(familyId, expiresAtMillis));
+        setBits(bits, digest);
+    }
+
+    // Family of the token if it is known to be revoked, otherwise null
+    public String revokedFamily(byte[] digest, String tokenHash) {
+        if (!mightContain(bits, digest)) {
+            return null;
+        }
+        Revoked entry = revoked.get(tokenHash);
+        return entry != null ? entry.familyId() : null;
+    }
+
+    // Expired tokens are rejected on their expiry anyway; drop them and rebuild the filter without them.
+    // An add() racing with the rebuild may miss the new filter, which only costs it the fast path.
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(entry -> entry.expiresAtMillis() < now);
+
+        AtomicLongArray rebuilt = newBits();
+        for (String tokenHash : revoked.keySet()) {
+            setBits(rebuilt, HexFormat.of().parseHex(tokenHash));
+        }
+        bits = rebuilt;
+    }
+
+    private AtomicLongArray newBits() {
+        return new AtomicLongArray((bitCount + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    private void setBits(AtomicLongArray target, byte[] digest) {
+        ByteBuffer buffer = ByteBuffer.wrap(digest);
+        long h1 = buffer.getLong(0);
+        long h2 = buffer.getLong(Long.BYTES);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = index(h1, h2, i);
+            long mask = 1L << bit;
+            int word = bit >>> 6;
+            long current;
+            do {
+                current = target.get(word);
+            } while ((current & mask) == 0 && !target.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    private boolean mightContain(AtomicLongArray source, byte[] digest) {
+        ByteBuffer buffer = ByteBuffer.wrap(digest);
+        long h1 = buffer.getLong(0);
+        long h2 = buffer.getLong(Long.BYTES);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = index(h1, h2, i);
+            if ((source.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Double hashing (Kirsch-Mitzenmacher) over two independent 64-bit slices of the SHA-256 digest
+    private int index(long h1, long h2, int i) {
+        return (int) Math.floorMod(h1 + i * h2, (long) bitCount);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.userservice.security;
+
+import java.util.function.Consumer;
+
+// Delivers revocations to every node, including the one that published them. A multi-node deployment
+// registers an implementation over its message bus as the @Primary bean; events are idempotent, so
+// at-least-once delivery is enough.
+public interface RevocationBroadcaster {
+
+    void publish(RevocationEvent event);
+
+    void subscribe(Consumer<RevocationEvent> listener);
+}
@@ -0,0 +1,20 @@
+package com.example.userservice.security;
+
+// A revocation as exchanged between nodes. Times are epoch seconds, matching the JWT iat/exp claims.
+public record RevocationEvent(Kind kind, long userId, long tokenId, long issuedAt, long expiresAt) {
+
+    public enum Kind {
+        // Every token of the user issued before issuedAt
+        ALL_TOKENS,
+        // The single token with this jti
+        TOKEN
+    }
+
+    public static RevocationEvent allTokens(long userId, long issuedBefore, long expiresAt) {
+        return new RevocationEvent(Kind.ALL_TOKENS, userId, 0L, issuedBefore, expiresAt);
+    }
+
+    public static RevocationEvent token(long userId, long tokenId, long issuedAt, long expiresAt) {
+        return new RevocationEvent(Kind.TOKEN, userId, tokenId, issuedAt, expiresAt);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.userservice.security;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Revoked access tokens, checked by the JWT filter without a database read: a per-user "issued before"
+// watermark (sign out everywhere, password change, deletion) and a jti denylist (single sign-out).
+// An entry is dropped once every token it could match has expired, so the store stays as small as the
+// set of revocations made within one access-token lifetime. It is in memory only; after a restart,
+// revoked tokens live until their (short) expiry unless the broadcaster replays events.
+@Component
+@Slf4j
+public class TokenRevocationService {
+
+    // userId -> iat (epoch seconds) below which the user's tokens are rejected
+    private final LongExpiryMap watermarks;
+
+    // jti -> expiry of the token
+    private final LongExpiryMap deniedTokenIds;
+
+    private final RevocationBroadcaster broadcaster;
+    private final long accessTokenLifetimeSeconds;
+    private final Counter rejected;
+
+    public TokenRevocationService(RevocationBroadcaster broadcaster,
+                                  @Value("${jwt.expiration}") long jwtExpiration,
+                                  @Value("${jwt.revocation.max-entries}") int maxEntries,
+                                  MeterRegistry meterRegistry) {
+        this.broadcaster = broadcaster;
+        this.accessTokenLifetimeSeconds = Math.ceilDiv(jwtExpiration, 1000L);
+        // One watermark per user at most, so the user table bounds it rather than max-entries
+        this.watermarks = new LongExpiryMap(Integer.MAX_VALUE);
+        this.deniedTokenIds = new LongExpiryMap(maxEntries);
+        this.rejected = meterRegistry.counter("security.jwt.revoked.rejected");
+
+        Gauge.builder("security.jwt.revocation.watermarks", watermarks, LongExpiryMap::size)
+                .register(meterRegistry);
+        Gauge.builder("security.jwt.revocation.denied.tokens", deniedTokenIds, LongExpiryMap::size)
+                .register(meterRegistry);
+
+        broadcaster.subscribe(this::apply);
+    }
+
+    // O(1): at most one probe sequence in each map
+    public boolean isRevoked(long userId, long tokenId, long issuedAt) {
+        long now = nowSeconds();
+        boolean revoked = (tokenId != 0 && deniedTokenIds.get(tokenId, now) != LongExpiryMap.NO_VALUE)
+                || issuedAt < watermarks.get(userId, now);
+        if (revoked) {
+            rejected.increment();
+        }
+        return revoked;
+    }
+
+    // Single sign-out of the token described by the claims
+    public void revokeToken(long userId, Claims claims) {
+        long issuedAt = claims.getIssuedAt().getTime() / 1000;
+        long expiresAt = claims.getExpiration().getTime() / 1000;
+        long tokenId = JwtTokenProvider.getTokenId(claims);
+        broadcaster.publish(tokenId != 0
+                ? RevocationEvent.token(userId, tokenId, issuedAt, expiresAt)
+                // Tokens minted before jti was added can only be revoked through the watermark
+                : RevocationEvent.allTokens(userId, issuedAt + 1, expiresAt));
+    }
+
+    // iat has second precision and the check is iat < watermark, so a token minted later in the same
+    // second stays valid: a client that signs in again right after a password change is not locked out
+    public void revokeAllTokens(long userId) {
+        long issuedBefore = nowSeconds();
+        broadcaster.publish(RevocationEvent.allTokens(userId, issuedBefore, issuedBefore + accessTokenLifetimeSeconds));
+    }
+
+    // For password changes and deactivation: revoke only if the change is actually committed
+    public void revokeAllTokensAfterCommit(long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            revokeAllTokens(userId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                revokeAllTokens(userId);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-interval}")
+    public void purgeExpired() {
+        long now = nowSeconds();
+        int purged = watermarks.purgeExpired(now) + deniedTokenIds.purgeExpired(now);
+        if (purged > 0) {
+            log.debug("Purged {} expired token revocations", purged);
+        }
+    }
+
+    private void apply(RevocationEvent event) {
+        switch (event.kind()) {
+            case ALL_TOKENS -> watermarks.putMax(event.userId(), event.issuedAt(), event.expiresAt());
+            case TOKEN -> {
+                if (!deniedTokenIds.putMax(event.tokenId(), event.expiresAt(), event.expiresAt())) {
+                    // Denylist full: fall back to revoking everything the user was issued up to this token
+                    log.warn("Token denylist is full, revoking all tokens of user {} issued up to now", event.userId());
+                    watermarks.putMax(event.userId(), event.issuedAt() + 1, event.expiresAt());
+                }
+            }
+        }
+    }
+
+    private static long nowSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.userservice.security;
+
+import com.example.userservice.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+// Current token version per user, used to revoke stateless tokens without a DB read per request
+@Component
+public class TokenVersionService {
+
+    // Cached for users that are missing or deactivated, so every token they carry is rejected
+    private static final int REVOKED = -1;
+
+    private final UserRepository userRepository;
+    private final Cache<Long, Integer> versions;
+
+    // Held in a field: a lambda capturing the repository would be allocated on every lookup
+    private final Function<Long, Integer> versionLoader;
+
+    public TokenVersionService(UserRepository userRepository,
+                               @Value("${jwt.stateless-claims.version-cache.max-size}") long maxSize,
+                               @Value("${jwt.stateless-claims.version-cache.ttl}") Duration ttl,
+                               MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.versionLoader = id -> userRepository.findActiveTokenVersionById(id).orElse(REVOKED);
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, versions, "tokenVersionCache");
+    }
+
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        int current = versions.get(userId, versionLoader);
+        return current != REVOKED && current == tokenVersion;
+    }
+
+    public void evictAfterCommit(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            versions.invalidate(userId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                versions.invalidate(userId);
+            }
+        });
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.userservice.security;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.enums.AccountType;
+import com.example.userservice.enums.Role;
+import lombok.Getter;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+public class UserPrincipal implements UserDetails, CredentialsContainer {
+
+    private static final Map<Role, List<GrantedAuthority>> AUTHORITIES = new EnumMap<>(Role.class);
+
+    static {
+        for (Role role : Role.values()) {
+            AUTHORITIES.put(role, List.of(new SimpleGrantedAuthority(role.name())));
+        }
+    }
+
+    private final Long id;
+    private final String username;
+    private String password;
+    private final Role role;
+    private final AccountType accountType;
+    private final boolean active;
+    private final int tokenVersion;
+
+    // Scalars only: principals outlive the request in the principal and verified-token caches,
+    // so they must not hold on to a (detached) entity
+    public UserPrincipal(Long id, String username, String password, Role role,
+                         AccountType accountType, boolean active, int tokenVersion) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.role = role;
+        this.accountType = accountType;
+        this.active = active;
+        this.tokenVersion = tokenVersion;
+    }
+
+    public static UserPrincipal create(User user) {
+        return new UserPrincipal(
+                user.getId(),
+                user.getUsername(),
+                user.getPassword(),
+                user.getRole(),
+                user.getAccountType(),
+                Boolean.TRUE.equals(user.getIsActive()),
+                user.getTokenVersion()
+        );
+    }
+
+    public UserPrincipal withPassword(String newPassword) {
+        return new UserPrincipal(id, username, newPassword, role, accountType, active, tokenVersion);
+    }
+
+    // Called on every authenticated request, so each role's list is built once and shared
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return AUTHORITIES.get(role);
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return active;
+    }
+
+    @Override
+    public void eraseCredentials() {
+        this.password = null;
+    }
+}
@@ -5,20 +5,32 @@ import com.example.userservice.entity.User;
 import com.example.userservice.enums.AccountType;
 import com.example.userservice.enums.Role;
 import com.example.userservice.exception.BadRequestException;
+import com.example.userservice.exception.UnauthorizedException;
+import com.example.userservice.exception.UniqueConstraintTranslator;
+import com.example.userservice.mapper.UserMapper;
 import com.example.userservice.repository.UserRepository;
 import com.example.userservice.security.JwtTokenProvider;
+import com.example.userservice.security.LoginRateLimiter;
+import com.example.userservice.security.TokenRevocationService;
+import com.example.userservice.security.UserPrincipal;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
 
 @Service
+@Timed("service.method")
 public class AuthService {
     
     @Autowired
@@ -33,19 +45,24 @@ public class AuthService {
     @Autowired
     private JwtTokenProvider tokenProvider;
     
+    @Autowired
+    private LoginTimestampRecorder loginTimestampRecorder;
+    
+    @Autowired
+    private UserMapper userMapper;
+    
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    
+    @Autowired
+    private LoginRateLimiter loginRateLimiter;
+    
     @Transactional
     public UserResponse register(RegisterRequest request) {
-        // Check if username exists
-        if (userRepository.existsByUsername(request.getUsername())) {
-            throw new BadRequestException("Username already exists");
-        }
-        
-        // Check if email exists
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new BadRequestException("Email already exists");
-        }
-        
-        // Create new user
+        // Create new user; uniqueness of username and email is enforced by the table constraints
         User user = User.builder()
                 .username(request.getUsername())
                 .email(request.getEmail())
@@ -58,55 +75,112 @@ public class AuthService {
                 .isEmailVerified(false)
                 .build();
         
-        user = userRepository.save(user);
+        try {
+            user = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw UniqueConstraintTranslator.translate(e);
+        }
+        
+        return userMapper.toResponse(user);
+    }
+    
+    // One query for the sign-up form's live checks; register() does not rely on it
+    public AvailabilityResponse checkAvailability(String username, String email) {
+        if (username == null && email == null) {
+            throw new BadRequestException("Username or email is required");
+        }
+        
+        boolean usernameTaken = false;
+        boolean emailTaken = false;
+        for (UserRepository.UsernameAndEmail existing :
+                userRepository.findUsernameAndEmailByUsernameOrEmail(username, email)) {
+            usernameTaken |= existing.getUsername().equals(username);
+            emailTaken |= existing.getEmail().equals(email);
+        }
         
-        return mapToUserResponse(user);
+        return new AvailabilityResponse(
+                username != null ? !usernameTaken : null,
+                email != null ? !emailTaken : null);
     }
     
-    public AuthResponse login(LoginRequest request) {
+    @Timed(value = "auth.login", histogram = true)
+    public AuthResponse login(LoginRequest request, String clientIp) {
+        // Rejected attempts never reach the password hash
+        loginRateLimiter.acquire(request.getUsernameOrEmail(), clientIp);
+        
         // Authenticate user
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        request.getUsernameOrEmail(),
-                        request.getPassword()
-                )
-        );
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(
+                            request.getUsernameOrEmail(),
+                            request.getPassword()
+                    )
+            );
+        } catch (AuthenticationException ex) {
+            // Keyed by user where the login names one, so username and email share the lockout. The user
+            // was just loaded during authentication, so this is a cache hit
+            Long userId = userRepository.findByUsernameOrEmail(request.getUsernameOrEmail())
+                    .map(User::getId)
+                    .orElse(null);
+            loginRateLimiter.recordFailure(request.getUsernameOrEmail(), userId);
+            throw ex;
+        }
+        loginRateLimiter.recordSuccess(request.getUsernameOrEmail());
         
         SecurityContextHolder.getContext().setAuthentication(authentication);
         
         // Generate token
         String token = tokenProvider.generateToken(authentication);
         
-        // Update last login
-        User user = userRepository.findByUsernameOrEmail(
-                request.getUsernameOrEmail(), 
-                request.getUsernameOrEmail()
-        ).orElseThrow();
+        // The user was just loaded during authentication, so this is a second-level cache hit.
+        // Last login is written behind in batches; the entity itself is left untouched
+        UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
+        User user = userRepository.findById(principal.getId()).orElseThrow();
         
-        user.setLastLoginAt(LocalDateTime.now());
-        userRepository.save(user);
+        LocalDateTime loginAt = LocalDateTime.now();
+        loginTimestampRecorder.record(user.getId(), loginAt);
         
         return AuthResponse.builder()
                 .token(token)
                 .expiresIn(tokenProvider.getExpirationTime())
-                .user(mapToUserResponse(user))
+                .refreshToken(refreshTokenService.issue(user.getId()))
+                .refreshExpiresIn(refreshTokenService.getRefreshExpiration())
+                .user(userMapper.toResponse(user, loginAt))
                 .build();
     }
     
-    private UserResponse mapToUserResponse(User user) {
-        return UserResponse.builder()
-                .id(user.getId())
-                .username(user.getUsername())
-                .email(user.getEmail())
-                .fullName(user.getFullName())
-                .phoneNumber(user.getPhoneNumber())
-                .role(user.getRole())
-                .accountType(user.getAccountType())
-                .isActive(user.getIsActive())
-                .isEmailVerified(user.getIsEmailVerified())
-                .vipExpiryDate(user.getVipExpiryDate())
-                .createdAt(user.getCreatedAt())
-                .lastLoginAt(user.getLastLoginAt())
+    // Renews without the password: one lookup of the refresh token, the user comes from the entity cache
+    @Timed(value = "auth.refresh", histogram = true)
+    public AuthResponse refresh(RefreshTokenRequest request) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(request.getRefreshToken());
+        
+        User user = userRepository.findById(rotation.userId()).orElse(null);
+        if (user == null || !Boolean.TRUE.equals(user.getIsActive())) {
+            refreshTokenService.revokeFamily(rotation.familyId());
+            throw new UnauthorizedException("User account is deactivated");
+        }
+        
+        return AuthResponse.builder()
+                .token(tokenProvider.generateToken(UserPrincipal.create(user)))
+                .expiresIn(tokenProvider.getExpirationTime())
+                .refreshToken(rotation.refreshToken())
+                .refreshExpiresIn(refreshTokenService.getRefreshExpiration())
+                .user(userMapper.toResponse(user))
                 .build();
     }
-}
\ No newline at end of file
+    
+    // Revokes the presented access token (or all of the user's tokens) and the session's refresh token
+    public void logout(UserPrincipal principal, String accessToken, LogoutRequest request) {
+        Claims claims = tokenProvider.validateAndGetClaims(accessToken)
+                .orElseThrow(() -> new UnauthorizedException("Invalid access token"));
+        
+        if (request != null && request.isAllSessions()) {
+            tokenRevocationService.revokeAllTokens(principal.getId());
+            refreshTokenService.revokeAllForUser(principal.getId());
+        } else if (request != null && StringUtils.hasText(request.getRefreshToken())) {
+            refreshTokenService.revokeSession(request.getRefreshToken(), principal.getId());
+        }
+        tokenRevocationService.revokeToken(principal.getId(), claims);
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.userservice.service;
+
+import com.example.userservice.entity.IdempotencyRecord;
+import com.example.userservice.exception.BadRequestException;
+import com.example.userservice.exception.ConflictException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Makes retried writes safe: the first request with a key reserves it, runs, and stores its
+// response in the same transaction; repeats with that key get the stored response back.
+// Keys are scoped per caller and per operation. While a request runs, its reservation is kept alive by
+// a heartbeat, so only reservations of requests that died mid-flight are ever reclaimed.
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final int MAX_RESERVE_ATTEMPTS = 3;
+
+    private static final String RESERVE_SQL = "INSERT INTO idempotency_keys "
+            + "(owner, scope, idempotency_key, request_hash, status, created_at, expires_at, heartbeat_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String FIND_SQL = "SELECT id, request_hash, status, response_body, created_at, expires_at, "
+            + "heartbeat_at "
+            + "FROM idempotency_keys WHERE owner = ? AND scope = ? AND idempotency_key = ?";
+
+    private static final String COMPLETE_SQL = "UPDATE idempotency_keys SET status = ?, response_body = ?, expires_at = ? "
+            + "WHERE owner = ? AND scope = ? AND idempotency_key = ?";
+
+    private static final String DELETE_SQL = "DELETE FROM idempotency_keys "
+            + "WHERE owner = ? AND scope = ? AND idempotency_key = ?";
+
+    private static final String HEARTBEAT_SQL = "UPDATE idempotency_keys SET heartbeat_at = ? "
+            + "WHERE owner = ? AND scope = ? AND idempotency_key = ? AND status = 'IN_PROGRESS'";
+
+    // Re-checks staleness, so a reservation whose heartbeat arrived after our SELECT survives
+    private static final String DELETE_STALE_SQL = "DELETE FROM idempotency_keys WHERE id = ? "
+            + "AND (expires_at < ? OR (status = 'IN_PROGRESS' AND COALESCE(heartbeat_at, created_at) < ?))";
+
+    private static final String PURGE_SQL = "DELETE FROM idempotency_keys WHERE expires_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration inProgressTimeout;
+
+    // Reservations of requests running on this node, kept alive by heartbeat()
+    private final Set<Claim> runningClaims = ConcurrentHashMap.newKeySet();
+
+    public IdempotencyService(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper,
+                              @Value("${idempotency.ttl}") Duration ttl,
+                              @Value("${idempotency.in-progress-timeout}") Duration inProgressTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.inProgressTimeout = inProgressTimeout;
+    }
+
+    // Runs the action at most once per (caller, scope, key); without a key it simply runs
+    public <T> T execute(String scope, String key, Object request, TypeReference<T> responseType, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String owner = currentOwner();
+        String requestHash = hash(request);
+
+        for (int attempt = 0; attempt < MAX_RESERVE_ATTEMPTS; attempt++) {
+            LocalDateTime now = LocalDateTime.now();
+            try {
+                // Committed on its own, so concurrent duplicates see the reservation immediately
+                jdbcTemplate.update(RESERVE_SQL, owner, scope, key, requestHash,
+                        IdempotencyRecord.Status.IN_PROGRESS.name(),
+                        Timestamp.valueOf(now), Timestamp.valueOf(now.plus(ttl)), Timestamp.valueOf(now));
+            } catch (DataIntegrityViolationException e) {
+                List<IdempotencyRecord> existing = jdbcTemplate.query(FIND_SQL, (rs, rowNum) -> {
+                    IdempotencyRecord record = new IdempotencyRecord();
+                    record.setId(rs.getLong("id"));
+                    record.setRequestHash(rs.getString("request_hash"));
+                    record.setStatus(IdempotencyRecord.Status.valueOf(rs.getString("status")));
+                    record.setResponseBody(rs.getString("response_body"));
+                    record.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+                    record.setExpiresAt(rs.getTimestamp("expires_at").toLocalDateTime());
+                    Timestamp heartbeatAt = rs.getTimestamp("heartbeat_at");
+                    record.setHeartbeatAt(heartbeatAt != null ? heartbeatAt.toLocalDateTime() : null);
+                    return record;
+                }, owner, scope, key);
+
+                if (existing.isEmpty()) {
+                    // Released between our INSERT and SELECT
+                    continue;
+                }
+
+                IdempotencyRecord record = existing.get(0);
+                LocalDateTime staleBefore = now.minus(inProgressTimeout);
+                boolean expired = record.getExpiresAt().isBefore(now);
+                // No heartbeat for a whole timeout: the request died mid-flight (rows reserved before
+                // heartbeats existed fall back to their creation time)
+                LocalDateTime lastSeen = record.getHeartbeatAt() != null ? record.getHeartbeatAt() : record.getCreatedAt();
+                boolean abandoned = record.getStatus() == IdempotencyRecord.Status.IN_PROGRESS
+                        && lastSeen.isBefore(staleBefore);
+                if (expired || abandoned) {
+                    jdbcTemplate.update(DELETE_STALE_SQL, record.getId(),
+                            Timestamp.valueOf(now), Timestamp.valueOf(staleBefore));
+                    continue;
+                }
+                if (!record.getRequestHash().equals(requestHash)) {
+                    throw new BadRequestException("Idempotency-Key has already been used for a different request");
+                }
+                if (record.getStatus() == IdempotencyRecord.Status.IN_PROGRESS) {
+                    throw new ConflictException("A request with this Idempotency-Key is still being processed");
+                }
+                return readResponse(record.getResponseBody(), responseType);
+            }
+
+            return run(owner, scope, key, action);
+        }
+
+        throw new ConflictException("A request with this Idempotency-Key is still being processed");
+    }
+
+    // Each update commits on its own; it waits at most for a completing request to commit
+    @Scheduled(fixedDelayString = "${idempotency.heartbeat-interval}")
+    public void heartbeat() {
+        if (runningClaims.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (Claim claim : runningClaims) {
+            try {
+                jdbcTemplate.update(HEARTBEAT_SQL, now, claim.owner(), claim.scope(), claim.key());
+            } catch (RuntimeException e) {
+                log.warn("Failed to refresh idempotency key {} of {}", claim.key(), claim.owner(), e);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval}")
+    public void purgeExpired() {
+        int purged = jdbcTemplate.update(PURGE_SQL, Timestamp.valueOf(LocalDateTime.now()));
+        if (purged > 0) {
+            log.debug("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    private <T> T run(String owner, String scope, String key, Supplier<T> action) {
+        Claim claim = new Claim(owner, scope, key);
+        runningClaims.add(claim);
+        try {
+            return transactionTemplate.execute(status -> {
+                T response = action.get();
+                jdbcTemplate.update(COMPLETE_SQL, IdempotencyRecord.Status.COMPLETED.name(), writeResponse(response),
+                        Timestamp.valueOf(LocalDateTime.now().plus(ttl)), owner, scope, key);
+                return response;
+            });
+        } catch (RuntimeException e) {
+            // Nothing was committed, so the client may retry with the same key
+            jdbcTemplate.update(DELETE_SQL, owner, scope, key);
+            throw e;
+        } finally {
+            runningClaims.remove(claim);
+        }
+    }
+
+    private String currentOwner() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "anonymous";
+    }
+
+    private String hash(Object request) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Failed to fingerprint request", e);
+        }
+    }
+
+    private String writeResponse(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to store idempotent response", e);
+        }
+    }
+
+    private <T> T readResponse(String body, TypeReference<T> responseType) {
+        try {
+            return objectMapper.readValue(body, responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to read stored idempotent response", e);
+        }
+    }
+
+    private record Claim(String owner, String scope, String key) {
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.userservice.service;
+
+import com.example.userservice.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Write-behind buffer for users.last_login_at: logins only touch memory, a scheduled
+// flush writes the latest timestamp per user in JDBC batches
+@Component
+@Slf4j
+public class LoginTimestampRecorder {
+
+    private static final String UPDATE_SQL = "UPDATE users SET last_login_at = ? "
+            + "WHERE id = ? AND (last_login_at IS NULL OR last_login_at < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRepository userRepository;
+    private final int maxPending;
+    private final int batchSize;
+
+    // Keyed by user id, so repeated logins between flushes coalesce into one UPDATE
+    private final ConcurrentHashMap<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    private final Counter recorded;
+    private final Counter dropped;
+    private final Counter written;
+    private final Timer flushTimer;
+
+    public LoginTimestampRecorder(JdbcTemplate jdbcTemplate,
+                                  UserRepository userRepository,
+                                  @Value("${login-tracking.max-pending}") int maxPending,
+                                  @Value("${login-tracking.batch-size}") int batchSize,
+                                  MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userRepository = userRepository;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+        this.recorded = meterRegistry.counter("login.timestamps.recorded");
+        this.dropped = meterRegistry.counter("login.timestamps.dropped");
+        this.written = meterRegistry.counter("login.timestamps.written");
+        this.flushTimer = meterRegistry.timer("login.timestamps.flush");
+        meterRegistry.gaugeMapSize("login.timestamps.pending", List.of(), pending);
+    }
+
+    public void record(Long userId, LocalDateTime loginAt) {
+        // Bounded: once full, only users already queued can be updated, new ones are dropped
+        if (pending.size() >= maxPending && !pending.containsKey(userId)) {
+            dropped.increment();
+            return;
+        }
+
+        pending.merge(userId, loginAt, (current, next) -> next.isAfter(current) ? next : current);
+        recorded.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${login-tracking.flush-interval}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        flushTimer.record(() -> {
+            List<Map.Entry<Long, LocalDateTime>> batch = new ArrayList<>(pending.size());
+            for (Map.Entry<Long, LocalDateTime> entry : pending.entrySet()) {
+                batch.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+
+            try {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, batch, batchSize, (ps, entry) -> {
+                    Timestamp loginAt = Timestamp.valueOf(entry.getValue());
+                    ps.setTimestamp(1, loginAt);
+                    ps.setLong(2, entry.getKey());
+                    ps.setTimestamp(3, loginAt);
+                });
+            } catch (RuntimeException e) {
+                // Entries stay queued and are retried on the next flush
+                log.warn("Failed to flush {} login timestamps", batch.size(), e);
+                return;
+            }
+
+            // Only drop entries that did not receive a newer login while the batch was running
+            List<Long> userIds = new ArrayList<>(batch.size());
+            for (Map.Entry<Long, LocalDateTime> entry : batch) {
+                pending.remove(entry.getKey(), entry.getValue());
+                userIds.add(entry.getKey());
+            }
+            userRepository.evictFromCacheAfterCommit(userIds);
+            written.increment(batch.size());
+        });
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
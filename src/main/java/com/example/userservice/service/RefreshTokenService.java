@@ -0,0 +1,214 @@
+package com.example.userservice.service;
+
+import com.example.userservice.entity.RefreshToken;
+import com.example.userservice.exception.UnauthorizedException;
+import com.example.userservice.security.RefreshTokenRevocationSet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+// Issues and rotates refresh tokens. A renewal is one lookup on the unique token_hash index plus the
+// rotation writes, instead of a BCrypt check of the password.
+@Service
+@Slf4j
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private static final String INSERT_SQL = "INSERT INTO refresh_tokens "
+            + "(token_hash, user_id, family_id, created_at, expires_at) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String FIND_SQL = "SELECT id, user_id, family_id, created_at, expires_at, revoked_at "
+            + "FROM refresh_tokens WHERE token_hash = ?";
+
+    // Guarded, so of two requests rotating the same token only one gets a successor
+    private static final String ROTATE_SQL = "UPDATE refresh_tokens SET revoked_at = ? "
+            + "WHERE id = ? AND revoked_at IS NULL";
+
+    // Only a rotation adds a newer token to a family, so a later one means the token was rotated rather
+    // than revoked by sign-out, a password change or deactivation
+    private static final String COUNT_SUCCESSORS_SQL = "SELECT COUNT(*) FROM refresh_tokens "
+            + "WHERE family_id = ? AND id > ?";
+
+    private static final String REVOKE_FAMILY_SQL = "UPDATE refresh_tokens SET revoked_at = ? "
+            + "WHERE family_id = ? AND revoked_at IS NULL";
+
+    private static final String REVOKE_USER_SQL = "UPDATE refresh_tokens SET revoked_at = ? "
+            + "WHERE user_id = ? AND revoked_at IS NULL";
+
+    private static final String PURGE_SQL = "DELETE FROM refresh_tokens WHERE expires_at < ?";
+
+    private static final RowMapper<RefreshToken> ROW_MAPPER = (rs, rowNum) -> {
+        Timestamp revokedAt = rs.getTimestamp("revoked_at");
+        return new RefreshToken(
+                rs.getLong("id"),
+                null,
+                rs.getLong("user_id"),
+                rs.getString("family_id"),
+                rs.getTimestamp("created_at").toLocalDateTime(),
+                rs.getTimestamp("expires_at").toLocalDateTime(),
+                revokedAt != null ? revokedAt.toLocalDateTime() : null);
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RefreshTokenRevocationSet revocationSet;
+    private final long refreshExpiration;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private final Counter reuseDetected;
+
+    public RefreshTokenService(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               RefreshTokenRevocationSet revocationSet,
+                               @Value("${jwt.refresh-expiration}") long refreshExpiration,
+                               MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.revocationSet = revocationSet;
+        this.refreshExpiration = refreshExpiration;
+        this.reuseDetected = meterRegistry.counter("auth.refresh.reuse.detected");
+    }
+
+    public record Rotation(Long userId, String familyId, String refreshToken) {
+    }
+
+    // Starts a new token family, e.g. on login
+    public String issue(Long userId) {
+        return insert(userId, UUID.randomUUID().toString());
+    }
+
+    // Exchanges a valid refresh token for its successor. A token that was already rotated is being
+    // replayed from a copy, so the whole family is revoked and the legitimate holder must log in again.
+    // A token revoked otherwise (sign-out, password change) is just rejected.
+    public Rotation rotate(String refreshToken) {
+        byte[] digest = digest(refreshToken);
+        String tokenHash = HexFormat.of().formatHex(digest);
+
+        String knownFamily = revocationSet.revokedFamily(digest, tokenHash);
+        if (knownFamily != null) {
+            throw revokeReusedFamily(knownFamily);
+        }
+
+        List<RefreshToken> found = jdbcTemplate.query(FIND_SQL, ROW_MAPPER, tokenHash);
+        if (found.isEmpty()) {
+            throw new UnauthorizedException("Invalid refresh token");
+        }
+
+        RefreshToken stored = found.get(0);
+        if (stored.getRevokedAt() != null) {
+            throw rejectRevoked(digest, tokenHash, stored);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (stored.getExpiresAt().isBefore(now)) {
+            throw new UnauthorizedException("Refresh token has expired");
+        }
+
+        String successor = transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update(ROTATE_SQL, Timestamp.valueOf(now), stored.getId()) == 0) {
+                return null;
+            }
+            return insert(stored.getUserId(), stored.getFamilyId());
+        });
+        if (successor == null) {
+            // Another request rotated (or revoked) the same token between our SELECT and UPDATE
+            throw rejectRevoked(digest, tokenHash, stored);
+        }
+
+        revocationSet.add(digest, tokenHash, stored.getFamilyId(), stored.getExpiresAt());
+        return new Rotation(stored.getUserId(), stored.getFamilyId(), successor);
+    }
+
+    // Logout: ends the session the token belongs to, if it is one of the user's
+    public void revokeSession(String refreshToken, Long userId) {
+        byte[] digest = digest(refreshToken);
+        String tokenHash = HexFormat.of().formatHex(digest);
+
+        List<RefreshToken> found = jdbcTemplate.query(FIND_SQL, ROW_MAPPER, tokenHash);
+        if (found.isEmpty() || !found.get(0).getUserId().equals(userId)) {
+            return;
+        }
+
+        // Not added to the revocation set, which holds rotated tokens only: presenting this token again
+        // is a plain 401, not a replay
+        revokeFamily(found.get(0).getFamilyId());
+    }
+
+    public void revokeFamily(String familyId) {
+        jdbcTemplate.update(REVOKE_FAMILY_SQL, Timestamp.valueOf(LocalDateTime.now()), familyId);
+    }
+
+    // Joins the caller's transaction, e.g. a password change or deactivation
+    public void revokeAllForUser(Long userId) {
+        jdbcTemplate.update(REVOKE_USER_SQL, Timestamp.valueOf(LocalDateTime.now()), userId);
+    }
+
+    public long getRefreshExpiration() {
+        return refreshExpiration;
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh.purge-interval}")
+    public void purgeExpired() {
+        int purged = jdbcTemplate.update(PURGE_SQL, Timestamp.valueOf(LocalDateTime.now()));
+        revocationSet.purgeExpired();
+        if (purged > 0) {
+            log.debug("Purged {} expired refresh tokens", purged);
+        }
+    }
+
+    private String insert(Long userId, String familyId) {
+        byte[] random = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(random);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update(INSERT_SQL, HexFormat.of().formatHex(digest(token)), userId, familyId,
+                Timestamp.valueOf(now), Timestamp.valueOf(now.plus(refreshExpiration, ChronoUnit.MILLIS)));
+        return token;
+    }
+
+    private UnauthorizedException rejectRevoked(byte[] digest, String tokenHash, RefreshToken stored) {
+        Integer successors = jdbcTemplate.queryForObject(COUNT_SUCCESSORS_SQL, Integer.class,
+                stored.getFamilyId(), stored.getId());
+        if (successors == null || successors == 0) {
+            return new UnauthorizedException("Refresh token has been revoked");
+        }
+        revocationSet.add(digest, tokenHash, stored.getFamilyId(), stored.getExpiresAt());
+        return revokeReusedFamily(stored.getFamilyId());
+    }
+
+    private UnauthorizedException revokeReusedFamily(String familyId) {
+        revokeFamily(familyId);
+        reuseDetected.increment();
+        log.warn("Revoked refresh token family {} after a rotated token was presented", familyId);
+        return new UnauthorizedException("Refresh token has been revoked");
+    }
+
+    private static byte[] digest(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
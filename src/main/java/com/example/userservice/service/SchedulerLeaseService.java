@@ -0,0 +1,65 @@
+package com.example.userservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Lease-based mutual exclusion for scheduled jobs running on several nodes. Leases are
+// time-bounded, so a node that dies while holding one only blocks the job until it expires.
+// Node clocks are compared, so clock skew between nodes must stay well below the lease TTL.
+@Component
+@Slf4j
+public class SchedulerLeaseService {
+
+    private static final String ACQUIRE_SQL = "UPDATE scheduler_leases SET owner = ?, locked_until = ? "
+            + "WHERE name = ? AND (locked_until < ? OR owner = ?)";
+
+    private static final String INSERT_SQL = "INSERT INTO scheduler_leases (name, owner, locked_until) "
+            + "VALUES (?, ?, ?)";
+
+    private static final String RELEASE_SQL = "UPDATE scheduler_leases SET locked_until = ? "
+            + "WHERE name = ? AND owner = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String owner;
+
+    public SchedulerLeaseService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+    }
+
+    // Takes the lease if it is free or expired, or extends it if this node already holds it
+    public boolean tryAcquire(String name, Duration ttl) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp lockedUntil = Timestamp.valueOf(now.plus(ttl));
+
+        int updated = jdbcTemplate.update(ACQUIRE_SQL, owner, lockedUntil, name, Timestamp.valueOf(now), owner);
+        if (updated == 1) {
+            return true;
+        }
+
+        try {
+            jdbcTemplate.update(INSERT_SQL, name, owner, lockedUntil);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Row exists and another node holds an unexpired lease
+            return false;
+        }
+    }
+
+    public void release(String name) {
+        try {
+            jdbcTemplate.update(RELEASE_SQL, Timestamp.valueOf(LocalDateTime.now()), name, owner);
+        } catch (RuntimeException e) {
+            // The lease simply runs out at its TTL
+            log.warn("Failed to release scheduler lease {}", name, e);
+        }
+    }
+}
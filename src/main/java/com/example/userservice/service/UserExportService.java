@@ -0,0 +1,143 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserResponse;
+import com.example.userservice.entity.User;
+import com.example.userservice.enums.ExportFormat;
+import com.example.userservice.mapper.UserMapper;
+import com.example.userservice.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@Service
+@Timed("service.method")
+@Slf4j
+public class UserExportService {
+
+    private static final String CSV_HEADER = "id,username,email,fullName,phoneNumber,role,accountType,"
+            + "isActive,isEmailVerified,vipExpiryDate,createdAt,lastLoginAt";
+
+    private final UserRepository userRepository;
+    private final UserMapper userMapper;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final Counter exportedRows;
+    private final Timer exportTimer;
+
+    public UserExportService(UserRepository userRepository,
+                             UserMapper userMapper,
+                             EntityManager entityManager,
+                             ObjectMapper objectMapper,
+                             @Value("${users.export.chunk-size}") int chunkSize,
+                             MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.userMapper = userMapper;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.exportedRows = meterRegistry.counter("users.export.rows");
+        this.exportTimer = meterRegistry.timer("users.export.duration");
+    }
+
+    // Streams every user to the output; the read-only transaction keeps the JDBC cursor open
+    @Transactional(readOnly = true)
+    public long export(ExportFormat format, OutputStream out) throws IOException {
+        long startNanos = System.nanoTime();
+        long rows = 0;
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // One document per line: suppress Jackson's default space between root values
+        generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        try (Stream<User> users = userRepository.streamAllByOrderByIdAsc()) {
+            Iterator<User> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                UserResponse row = userMapper.toResponse(iterator.next());
+                if (format == ExportFormat.CSV) {
+                    writeCsvRow(writer, row);
+                } else {
+                    objectMapper.writeValue(generator, row);
+                    generator.flush();
+                    writer.write('\n');
+                }
+
+                // Detach what has been written so the persistence context does not grow with the table
+                if (++rows % chunkSize == 0) {
+                    entityManager.clear();
+                    writer.flush();
+                }
+            }
+        }
+
+        writer.flush();
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        exportedRows.increment(rows);
+        exportTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        double seconds = Math.max(elapsedNanos / 1_000_000_000.0, 0.001);
+        log.info("Exported {} users as {} in {} ms ({} rows/s)",
+                rows, format, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), Math.round(rows / seconds));
+        return rows;
+    }
+
+    private void writeCsvRow(Writer writer, UserResponse row) throws IOException {
+        writer.write(String.valueOf(row.id()));
+        writeCsvField(writer, row.username());
+        writeCsvField(writer, row.email());
+        writeCsvField(writer, row.fullName());
+        writeCsvField(writer, row.phoneNumber());
+        writeCsvField(writer, row.role());
+        writeCsvField(writer, row.accountType());
+        writeCsvField(writer, row.isActive());
+        writeCsvField(writer, row.isEmailVerified());
+        writeCsvField(writer, row.vipExpiryDate());
+        writeCsvField(writer, row.createdAt());
+        writeCsvField(writer, row.lastLoginAt());
+        writer.write('\n');
+    }
+
+    private void writeCsvField(Writer writer, Object value) throws IOException {
+        writer.write(',');
+        if (value == null) {
+            return;
+        }
+
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
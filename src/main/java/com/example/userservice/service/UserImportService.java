@@ -0,0 +1,361 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.ImportRowError;
+import com.example.userservice.dto.RegisterRequest;
+import com.example.userservice.dto.UserImportResult;
+import com.example.userservice.entity.User;
+import com.example.userservice.enums.AccountType;
+import com.example.userservice.enums.ImportFormat;
+import com.example.userservice.enums.Role;
+import com.example.userservice.exception.BadRequestException;
+import com.example.userservice.exception.UniqueConstraintTranslator;
+import com.example.userservice.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Streams an uploaded CSV/NDJSON file of RegisterRequest rows into the users table chunk by chunk:
+// validate, drop duplicates with one query, hash passwords in parallel, then batch-insert
+@Service
+@Timed("service.method")
+@Slf4j
+public class UserImportService {
+
+    private static final Set<String> REQUIRED_CSV_COLUMNS = Set.of("username", "email", "password");
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final Validator validator;
+    private final ObjectReader ndjsonReader;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int batchSize;
+    private final int maxErrors;
+    private final ExecutorService hashingExecutor;
+    private final Counter importedRows;
+    private final Counter failedRows;
+    private final Timer importTimer;
+
+    public UserImportService(UserRepository userRepository,
+                             PasswordEncoder passwordEncoder,
+                             Validator validator,
+                             ObjectMapper objectMapper,
+                             EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${users.import.chunk-size}") int chunkSize,
+                             @Value("${users.import.batch-size}") int batchSize,
+                             @Value("${users.import.max-errors}") int maxErrors,
+                             @Value("${users.import.hashing-parallelism}") int hashingParallelism,
+                             MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.validator = validator;
+        this.ndjsonReader = objectMapper.readerFor(RegisterRequest.class);
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+        this.importedRows = meterRegistry.counter("users.import.rows", "result", "imported");
+        this.failedRows = meterRegistry.counter("users.import.rows", "result", "failed");
+        this.importTimer = meterRegistry.timer("users.import.duration");
+
+        // Callers of the bounded BCrypt pool; it is that pool which caps the CPU spent on hashing,
+        // keep this well below its queue capacity so imports never push logins into rejection
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "user-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.hashingExecutor = Executors.newFixedThreadPool(hashingParallelism, threadFactory);
+    }
+
+    public UserImportResult importUsers(ImportFormat format, InputStream in) throws IOException {
+        long startNanos = System.nanoTime();
+        UserImportResult result = new UserImportResult();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        long lineNumber = 0;
+        Map<String, Integer> csvColumns = null;
+        if (format == ImportFormat.CSV) {
+            String header = reader.readLine();
+            lineNumber++;
+            if (header == null) {
+                throw new BadRequestException("CSV header is missing");
+            }
+            csvColumns = parseCsvHeader(header);
+        }
+
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            result.setTotalRows(result.getTotalRows() + 1);
+
+            RegisterRequest request;
+            try {
+                request = csvColumns != null ? parseCsvRow(line, csvColumns) : ndjsonReader.readValue(line);
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                reject(result, lineNumber, null, "Malformed row");
+                continue;
+            }
+
+            Set<ConstraintViolation<RegisterRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                String message = violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; "));
+                reject(result, lineNumber, request.getUsername(), message);
+                continue;
+            }
+
+            chunk.add(new ImportRow(lineNumber, request));
+            if (chunk.size() >= chunkSize) {
+                importChunk(chunk, result);
+                chunk.clear();
+                log.info("User import progress: {} rows read, {} imported, {} failed",
+                        result.getTotalRows(), result.getImported(), result.getFailed());
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, result);
+        }
+        // Chunk-level rejections are found after the per-line ones
+        result.getErrors().sort(Comparator.comparingLong(ImportRowError::getLine));
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        importTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        double seconds = Math.max(elapsedNanos / 1_000_000_000.0, 0.001);
+        log.info("Imported {} of {} users as {} in {} ms ({} rows/s), {} failed",
+                result.getImported(), result.getTotalRows(), format,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), Math.round(result.getTotalRows() / seconds),
+                result.getFailed());
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingExecutor.shutdownNow();
+    }
+
+    private void importChunk(List<ImportRow> chunk, UserImportResult result) {
+        // Duplicates inside the chunk, then against the table (earlier chunks are already committed)
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        List<ImportRow> unique = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            if (!usernames.add(row.request().getUsername())) {
+                reject(result, row.line(), row.request().getUsername(), "Duplicate username in import");
+            } else if (!emails.add(row.request().getEmail())) {
+                reject(result, row.line(), row.request().getUsername(), "Duplicate email in import");
+            } else {
+                unique.add(row);
+            }
+        }
+
+        Set<String> takenUsernames = new HashSet<>();
+        Set<String> takenEmails = new HashSet<>();
+        for (UserRepository.UsernameAndEmail existing :
+                userRepository.findUsernameAndEmailByUsernameInOrEmailIn(usernames, emails)) {
+            takenUsernames.add(existing.getUsername());
+            takenEmails.add(existing.getEmail());
+        }
+
+        List<ImportRow> accepted = new ArrayList<>(unique.size());
+        for (ImportRow row : unique) {
+            if (takenUsernames.contains(row.request().getUsername())) {
+                reject(result, row.line(), row.request().getUsername(), "Username already exists");
+            } else if (takenEmails.contains(row.request().getEmail())) {
+                reject(result, row.line(), row.request().getUsername(), "Email already exists");
+            } else {
+                accepted.add(row);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        List<CompletableFuture<String>> hashes = accepted.stream()
+                .map(row -> CompletableFuture.supplyAsync(
+                        () -> passwordEncoder.encode(row.request().getPassword()), hashingExecutor))
+                .toList();
+        List<User> users = new ArrayList<>(accepted.size());
+        try {
+            for (int i = 0; i < accepted.size(); i++) {
+                users.add(toUser(accepted.get(i).request(), hashes.get(i).join()));
+            }
+        } catch (CompletionException e) {
+            // A full BCrypt pool rejects with TooManyRequestsException: surface it as the 429 it is.
+            // Earlier chunks stay imported; a retry reports their rows as already existing
+            hashes.forEach(hash -> hash.cancel(false));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+                userRepository.saveAll(users);
+                userRepository.flush();
+            });
+            result.setImported(result.getImported() + users.size());
+            importedRows.increment(users.size());
+        } catch (DataIntegrityViolationException e) {
+            // Someone registered one of these users after the pre-check; retry row by row
+            // so only the conflicting rows fail
+            entityManager.clear();
+            for (int i = 0; i < accepted.size(); i++) {
+                insertOne(accepted.get(i), users.get(i).getPassword(), result);
+            }
+        } finally {
+            entityManager.clear();
+        }
+    }
+
+    private void insertOne(ImportRow row, String passwordHash, UserImportResult result) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    userRepository.saveAndFlush(toUser(row.request(), passwordHash)));
+            result.setImported(result.getImported() + 1);
+            importedRows.increment();
+        } catch (DataIntegrityViolationException e) {
+            reject(result, row.line(), row.request().getUsername(), UniqueConstraintTranslator.translate(e).getMessage());
+        } finally {
+            entityManager.clear();
+        }
+    }
+
+    private User toUser(RegisterRequest request, String passwordHash) {
+        return User.builder()
+                .username(request.getUsername())
+                .email(request.getEmail())
+                .password(passwordHash)
+                .fullName(request.getFullName())
+                .phoneNumber(request.getPhoneNumber())
+                .role(Role.ROLE_USER)
+                .accountType(AccountType.REGULAR)
+                .isActive(true)
+                .isEmailVerified(false)
+                .build();
+    }
+
+    private void reject(UserImportResult result, long line, String username, String message) {
+        result.setFailed(result.getFailed() + 1);
+        failedRows.increment();
+        if (result.getErrors().size() < maxErrors) {
+            result.getErrors().add(new ImportRowError(line, username, message));
+        }
+    }
+
+    private Map<String, Integer> parseCsvHeader(String header) {
+        List<String> names = parseCsvFields(header);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+        if (!columns.keySet().containsAll(REQUIRED_CSV_COLUMNS)) {
+            throw new BadRequestException("CSV header must contain username, email and password");
+        }
+        return columns;
+    }
+
+    private RegisterRequest parseCsvRow(String line, Map<String, Integer> columns) {
+        List<String> fields = parseCsvFields(line);
+        return RegisterRequest.builder()
+                .username(csvField(fields, columns, "username"))
+                .email(csvField(fields, columns, "email"))
+                .password(csvField(fields, columns, "password"))
+                .fullName(csvField(fields, columns, "fullName"))
+                .phoneNumber(csvField(fields, columns, "phoneNumber"))
+                .build();
+    }
+
+    private String csvField(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size() || fields.get(index).isEmpty()) {
+            return null;
+        }
+        return fields.get(index);
+    }
+
+    // Same quoting rules as the export: fields with , or " are quoted and " is doubled.
+    // Quoted line breaks are not supported, each row must be on one line.
+    private List<String> parseCsvFields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private record ImportRow(long line, RegisterRequest request) {
+    }
+}
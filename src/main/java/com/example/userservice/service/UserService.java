@@ -1,13 +1,24 @@
 package com.example.userservice.service;
 
+import com.example.userservice.dto.CursorPage;
 import com.example.userservice.dto.UpdateUserRequest;
 import com.example.userservice.dto.UserResponse;
 import com.example.userservice.entity.User;
 import com.example.userservice.enums.AccountType;
+import com.example.userservice.enums.Role;
 import com.example.userservice.exception.BadRequestException;
 import com.example.userservice.exception.ResourceNotFoundException;
+import com.example.userservice.exception.UniqueConstraintTranslator;
+import com.example.userservice.mapper.UserMapper;
 import com.example.userservice.repository.UserRepository;
+import com.example.userservice.security.PrincipalCache;
+import com.example.userservice.security.TokenRevocationService;
+import com.example.userservice.security.TokenVersionService;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -16,9 +27,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
+@Timed("service.method")
 public class UserService {
     
     @Autowired
@@ -27,6 +38,27 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private PrincipalCache principalCache;
+    
+    @Autowired
+    private TokenVersionService tokenVersionService;
+    
+    @Autowired
+    private UserMapper userMapper;
+    
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    
+    @Value("${users.page.default-size}")
+    private int defaultPageSize;
+    
+    @Value("${users.page.max-size}")
+    private int maxPageSize;
+    
     public UserResponse getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String username = authentication.getName();
@@ -34,14 +66,14 @@ public class UserService {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
         
-        return mapToUserResponse(user);
+        return userMapper.toResponse(user);
     }
     
     public UserResponse getUserById(Long id) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
         
-        return mapToUserResponse(user);
+        return userMapper.toResponse(user);
     }
     
     @Transactional
@@ -52,11 +84,8 @@ public class UserService {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
         
-        // Update email if provided and not already taken
+        // Update email if provided; a taken email is rejected by uk_users_email on flush
         if (request.getEmail() != null && !request.getEmail().equals(user.getEmail())) {
-            if (userRepository.existsByEmail(request.getEmail())) {
-                throw new BadRequestException("Email already exists");
-            }
             user.setEmail(request.getEmail());
             user.setIsEmailVerified(false);
         }
@@ -82,10 +111,18 @@ public class UserService {
             }
             
             user.setPassword(passwordEncoder.encode(request.getNewPassword()));
+            // Sessions started with the old password end: no renewal, and their access tokens are rejected
+            refreshTokenService.revokeAllForUser(user.getId());
+            tokenRevocationService.revokeAllTokensAfterCommit(user.getId());
         }
         
-        user = userRepository.save(user);
-        return mapToUserResponse(user);
+        try {
+            user = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw UniqueConstraintTranslator.translate(e);
+        }
+        principalCache.evictAfterCommit(user.getUsername());
+        return userMapper.toResponse(user);
     }
     
     @Transactional
@@ -98,7 +135,12 @@ public class UserService {
         
         // Soft delete - deactivate account
         user.setIsActive(false);
+        user.setTokenVersion(user.getTokenVersion() + 1);
         userRepository.save(user);
+        refreshTokenService.revokeAllForUser(user.getId());
+        tokenRevocationService.revokeAllTokensAfterCommit(user.getId());
+        principalCache.evictAfterCommit(user.getUsername());
+        tokenVersionService.evictAfterCommit(user.getId());
     }
     
     @Transactional
@@ -113,9 +155,13 @@ public class UserService {
             vipExpiry = LocalDateTime.now();
         }
         user.setVipExpiryDate(vipExpiry.plusMonths(months));
+        // Stateless tokens carry the account type, so the ones issued before the change are renewed
+        user.setTokenVersion(user.getTokenVersion() + 1);
         
         user = userRepository.save(user);
-        return mapToUserResponse(user);
+        principalCache.evictAfterCommit(user.getUsername());
+        tokenVersionService.evictAfterCommit(user.getId());
+        return userMapper.toResponse(user);
     }
     
     @Transactional
@@ -125,37 +171,57 @@ public class UserService {
         
         user.setAccountType(AccountType.REGULAR);
         user.setVipExpiryDate(null);
+        // Stateless tokens carry the account type, so the ones issued before the change are renewed
+        user.setTokenVersion(user.getTokenVersion() + 1);
         
         user = userRepository.save(user);
-        return mapToUserResponse(user);
+        principalCache.evictAfterCommit(user.getUsername());
+        tokenVersionService.evictAfterCommit(user.getId());
+        return userMapper.toResponse(user);
     }
     
-    public List<UserResponse> getAllUsers() {
-        return userRepository.findAll().stream()
-                .map(this::mapToUserResponse)
-                .collect(Collectors.toList());
+    public CursorPage<UserResponse> getUsers(String cursor, Integer size,
+                                             Boolean isActive, AccountType accountType, Role role) {
+        Long afterId = parseCursor(cursor);
+        int pageSize = resolvePageSize(size);
+        
+        // Fetch one extra row to find out whether another page exists
+        List<UserResponse> rows = userRepository.findPageAfterId(
+                afterId, isActive, accountType, role, PageRequest.of(0, pageSize + 1));
+        
+        boolean hasMore = rows.size() > pageSize;
+        List<UserResponse> items = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasMore ? String.valueOf(items.get(items.size() - 1).id()) : null;
+        
+        return CursorPage.<UserResponse>builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
     }
     
-    public List<UserResponse> getVipUsers() {
-        return userRepository.findByAccountType(AccountType.VIP).stream()
-                .map(this::mapToUserResponse)
-                .collect(Collectors.toList());
+    public CursorPage<UserResponse> getVipUsers(String cursor, Integer size) {
+        return getUsers(cursor, size, null, AccountType.VIP, null);
     }
     
-    private UserResponse mapToUserResponse(User user) {
-        return UserResponse.builder()
-                .id(user.getId())
-                .username(user.getUsername())
-                .email(user.getEmail())
-                .fullName(user.getFullName())
-                .phoneNumber(user.getPhoneNumber())
-                .role(user.getRole())
-                .accountType(user.getAccountType())
-                .isActive(user.getIsActive())
-                .isEmailVerified(user.getIsEmailVerified())
-                .vipExpiryDate(user.getVipExpiryDate())
-                .createdAt(user.getCreatedAt())
-                .lastLoginAt(user.getLastLoginAt())
-                .build();
+    private Long parseCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+    
+    private int resolvePageSize(Integer size) {
+        if (size == null) {
+            return defaultPageSize;
+        }
+        if (size < 1) {
+            throw new BadRequestException("Page size must be at least 1");
+        }
+        return Math.min(size, maxPageSize);
     }
 }
\ No newline at end of file
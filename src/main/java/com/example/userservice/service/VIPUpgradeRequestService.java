@@ -1,29 +1,81 @@
 package com.example.userservice.service;
 
+import com.example.userservice.dto.BulkProcessResultDTO;
+import com.example.userservice.dto.BulkProcessVIPRequestDTO;
 import com.example.userservice.dto.CreateVIPUpgradeRequestDTO;
+import com.example.userservice.dto.CursorPage;
 import com.example.userservice.dto.ProcessVIPRequestDTO;
 import com.example.userservice.dto.VIPUpgradeRequestDTO;
 import com.example.userservice.entity.User;
 import com.example.userservice.entity.VIPUpgradeRequest;
 import com.example.userservice.enums.AccountType;
+import com.example.userservice.exception.BadRequestException;
+import com.example.userservice.exception.ConflictException;
+import com.example.userservice.mapper.VIPUpgradeRequestMapper;
 import com.example.userservice.repository.UserRepository;
 import com.example.userservice.repository.VIPUpgradeRequestRepository;
+import com.example.userservice.security.PrincipalCache;
+import com.example.userservice.security.TokenVersionService;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 @Service
+@Timed("service.method")
 @RequiredArgsConstructor
 public class VIPUpgradeRequestService {
 
+    private static final String PROCESS_REQUEST_SQL = "UPDATE vip_upgrade_requests "
+            + "SET status = ?, processed_date = ?, processed_by = ?, admin_note = ?, "
+            + "pending_user_id = NULL, version = version + 1 "
+            + "WHERE id = ? AND status = 'PENDING'";
+
+    // token_version moves too, so stateless tokens carrying the old account type are renewed
+    private static final String UPGRADE_USER_SQL = "UPDATE users "
+            + "SET account_type = ?, vip_expiry_date = ?, updated_at = ?, "
+            + "token_version = token_version + 1, version = version + 1 "
+            + "WHERE id = ? AND version = ?";
+
     private final VIPUpgradeRequestRepository requestRepository;
     private final UserRepository userRepository;
     private final UserService userService;
+    private final VIPUpgradeRequestMapper requestMapper;
+    private final PrincipalCache principalCache;
+    private final TokenVersionService tokenVersionService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${vip-requests.page.default-size}")
+    private int defaultPageSize;
+
+    @Value("${vip-requests.page.max-size}")
+    private int maxPageSize;
+
+    @Value("${vip-requests.bulk.max-size}")
+    private int bulkMaxSize;
 
+    @Value("${vip-requests.bulk.batch-size}")
+    private int bulkBatchSize;
+
+    // userId is the authenticated caller. The row is still loaded rather than referenced: the account
+    // type on the principal may be stale and the returned DTO carries the username and full name.
+    // With the second-level cache this is normally a cache hit, so the INSERT is the only statement.
     @Transactional
     public VIPUpgradeRequestDTO createRequest(Long userId, CreateVIPUpgradeRequestDTO dto) {
         User user = userRepository.findById(userId)
@@ -33,12 +85,6 @@ public class VIPUpgradeRequestService {
             throw new RuntimeException("User is already VIP");
         }
 
-        // Check if user already has a pending request
-        requestRepository.findByUserAndStatus(user, VIPUpgradeRequest.RequestStatus.PENDING)
-                .ifPresent(req -> {
-                    throw new RuntimeException("You already have a pending upgrade request");
-                });
-
         VIPUpgradeRequest request = new VIPUpgradeRequest();
         request.setUser(user);
         request.setRequestedMonths(dto.getRequestedMonths());
@@ -46,37 +92,67 @@ public class VIPUpgradeRequestService {
         request.setStatus(VIPUpgradeRequest.RequestStatus.PENDING);
         request.setRequestDate(LocalDateTime.now());
 
-        VIPUpgradeRequest saved = requestRepository.save(request);
-        return convertToDTO(saved);
+        // At most one pending request per user is enforced by the unique pending_user_id constraint
+        VIPUpgradeRequest saved;
+        try {
+            saved = requestRepository.saveAndFlush(request);
+        } catch (DataIntegrityViolationException e) {
+            throw new ConflictException("You already have a pending upgrade request");
+        }
+        return requestMapper.toDto(saved);
     }
 
-    public List<VIPUpgradeRequestDTO> getAllRequests() {
-        return requestRepository.findAllByOrderByRequestDateDesc()
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public CursorPage<VIPUpgradeRequestDTO> getAllRequests(VIPUpgradeRequest.RequestStatus status,
+                                                          LocalDateTime from, LocalDateTime to,
+                                                          String cursor, Integer size) {
+        int pageSize = resolvePageSize(size);
+        LocalDateTime cursorDate = null;
+        Long cursorId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            // Cursor is "<requestDate>_<id>" of the last row of the previous page, base64url-encoded
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.lastIndexOf('_');
+                cursorDate = LocalDateTime.parse(decoded.substring(0, separator));
+                cursorId = Long.parseLong(decoded.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new BadRequestException("Invalid cursor");
+            }
+        }
+
+        // Fetch one extra row to find out whether another page exists
+        List<VIPUpgradeRequestDTO> rows = requestRepository.findDtoPage(
+                status, from, to, cursorDate, cursorId, pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<VIPUpgradeRequestDTO> items = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            VIPUpgradeRequestDTO last = items.get(items.size() - 1);
+            String raw = last.requestDate() + "_" + last.id();
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return CursorPage.<VIPUpgradeRequestDTO>builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
     }
 
-    public List<VIPUpgradeRequestDTO> getPendingRequests() {
-        return requestRepository.findByStatus(VIPUpgradeRequest.RequestStatus.PENDING)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public CursorPage<VIPUpgradeRequestDTO> getPendingRequests(LocalDateTime from, LocalDateTime to,
+                                                              String cursor, Integer size) {
+        return getAllRequests(VIPUpgradeRequest.RequestStatus.PENDING, from, to, cursor, size);
     }
 
+    // userId is the authenticated caller, so it is not checked for existence again
     public List<VIPUpgradeRequestDTO> getUserRequests(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        return requestRepository.findByUserOrderByRequestDateDesc(user)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return requestRepository.findDtosByUserIdOrderByRequestDateDesc(userId);
     }
 
     @Transactional
     public VIPUpgradeRequestDTO processRequest(Long requestId, Long adminId, ProcessVIPRequestDTO dto) {
-        VIPUpgradeRequest request = requestRepository.findById(requestId)
+        VIPUpgradeRequest request = requestRepository.findWithUserById(requestId)
                 .orElseThrow(() -> new RuntimeException("Request not found"));
 
         if (request.getStatus() != VIPUpgradeRequest.RequestStatus.PENDING) {
@@ -94,7 +170,105 @@ public class VIPUpgradeRequestService {
         }
 
         VIPUpgradeRequest saved = requestRepository.save(request);
-        return convertToDTO(saved);
+        return requestMapper.toDto(saved);
+    }
+
+    // Processes many requests in one transaction: a single SELECT, then one JDBC batch for the
+    // request rows and one for the users being upgraded, independent of how many ids are sent
+    @Transactional
+    public List<BulkProcessResultDTO> processRequests(Long adminId, BulkProcessVIPRequestDTO dto) {
+        if (dto.getStatus() == VIPUpgradeRequest.RequestStatus.PENDING) {
+            throw new BadRequestException("Status must be APPROVED or REJECTED");
+        }
+
+        Set<Long> requestIds = new LinkedHashSet<>(dto.getRequestIds());
+        if (requestIds.size() > bulkMaxSize) {
+            throw new BadRequestException("At most " + bulkMaxSize + " requests can be processed at once");
+        }
+
+        Map<Long, VIPUpgradeRequest> requests = new HashMap<>();
+        for (VIPUpgradeRequest request : requestRepository.findAllWithUserByIdIn(requestIds)) {
+            requests.put(request.getId(), request);
+        }
+
+        Map<Long, BulkProcessResultDTO> results = new HashMap<>();
+        List<VIPUpgradeRequest> pending = new ArrayList<>();
+        for (Long requestId : requestIds) {
+            VIPUpgradeRequest request = requests.get(requestId);
+            if (request == null) {
+                results.put(requestId, new BulkProcessResultDTO(requestId, false, null, "Request not found"));
+            } else if (request.getStatus() != VIPUpgradeRequest.RequestStatus.PENDING) {
+                results.put(requestId, new BulkProcessResultDTO(requestId, false, request.getStatus(),
+                        "Request has already been processed"));
+            } else {
+                pending.add(request);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp processedAt = Timestamp.valueOf(now);
+        // The status guard in the UPDATE skips rows another admin processed after our SELECT
+        int[][] updateCounts = jdbcTemplate.batchUpdate(PROCESS_REQUEST_SQL, pending, bulkBatchSize, (ps, request) -> {
+            ps.setString(1, dto.getStatus().name());
+            ps.setTimestamp(2, processedAt);
+            ps.setObject(3, adminId);
+            ps.setString(4, dto.getAdminNote());
+            ps.setLong(5, request.getId());
+        });
+
+        // Requests approved for the same user stack their months onto one expiry update
+        Map<Long, User> approvedUsers = new LinkedHashMap<>();
+        Map<Long, Integer> approvedMonths = new HashMap<>();
+        int index = 0;
+        for (int[] batch : updateCounts) {
+            for (int count : batch) {
+                VIPUpgradeRequest request = pending.get(index++);
+                // SUCCESS_NO_INFO (-2) is what some drivers report for every row of a rewritten batch
+                if (count == 0) {
+                    results.put(request.getId(), new BulkProcessResultDTO(request.getId(), false, null,
+                            "Request has already been processed"));
+                    continue;
+                }
+
+                results.put(request.getId(), new BulkProcessResultDTO(request.getId(), true, dto.getStatus(), null));
+                if (dto.getStatus() == VIPUpgradeRequest.RequestStatus.APPROVED) {
+                    User user = request.getUser();
+                    approvedUsers.putIfAbsent(user.getId(), user);
+                    approvedMonths.merge(user.getId(), request.getRequestedMonths(), Integer::sum);
+                }
+            }
+        }
+
+        if (!approvedUsers.isEmpty()) {
+            List<User> users = new ArrayList<>(approvedUsers.values());
+            int[][] userCounts = jdbcTemplate.batchUpdate(UPGRADE_USER_SQL, users, bulkBatchSize, (ps, user) -> {
+                LocalDateTime vipExpiry = user.getVipExpiryDate();
+                if (vipExpiry == null || vipExpiry.isBefore(now)) {
+                    vipExpiry = now;
+                }
+                ps.setString(1, AccountType.VIP.name());
+                ps.setTimestamp(2, Timestamp.valueOf(vipExpiry.plusMonths(approvedMonths.get(user.getId()))));
+                ps.setTimestamp(3, processedAt);
+                ps.setLong(4, user.getId());
+                ps.setLong(5, user.getVersion());
+            });
+
+            // The expiry was computed from the row as loaded; if it changed since, roll everything back
+            int userIndex = 0;
+            for (int[] batch : userCounts) {
+                for (int count : batch) {
+                    User user = users.get(userIndex++);
+                    if (count == 0) {
+                        throw new ObjectOptimisticLockingFailureException(User.class, user.getId());
+                    }
+                }
+            }
+            userRepository.evictFromCacheAfterCommit(approvedUsers.keySet());
+            users.forEach(user -> principalCache.evictAfterCommit(user.getUsername()));
+            approvedUsers.keySet().forEach(tokenVersionService::evictAfterCommit);
+        }
+
+        return requestIds.stream().map(results::get).toList();
     }
 
     @Transactional
@@ -113,18 +287,13 @@ public class VIPUpgradeRequestService {
         requestRepository.delete(request);
     }
 
-    private VIPUpgradeRequestDTO convertToDTO(VIPUpgradeRequest request) {
-        VIPUpgradeRequestDTO dto = new VIPUpgradeRequestDTO();
-        dto.setId(request.getId());
-        dto.setUserId(request.getUser().getId());
-        dto.setUsername(request.getUser().getUsername());
-        dto.setFullName(request.getUser().getFullName());
-        dto.setRequestedMonths(request.getRequestedMonths());
-        dto.setMessage(request.getMessage());
-        dto.setStatus(request.getStatus());
-        dto.setRequestDate(request.getRequestDate());
-        dto.setProcessedDate(request.getProcessedDate());
-        dto.setAdminNote(request.getAdminNote());
-        return dto;
+    private int resolvePageSize(Integer size) {
+        if (size == null) {
+            return defaultPageSize;
+        }
+        if (size < 1) {
+            throw new BadRequestException("Page size must be at least 1");
+        }
+        return Math.min(size, maxPageSize);
     }
 }
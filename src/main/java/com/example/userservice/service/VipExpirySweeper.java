@@ -0,0 +1,133 @@
+package com.example.userservice.service;
+
+import com.example.userservice.enums.AccountType;
+import com.example.userservice.repository.UserRepository;
+import com.example.userservice.security.PrincipalCache;
+import com.example.userservice.security.TokenVersionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+// Downgrades VIP accounts whose expiry has passed, in chunks driven by the
+// (account_type, vip_expiry_date) index. Only the node holding the lease sweeps.
+@Component
+@Slf4j
+public class VipExpirySweeper {
+
+    private static final String LEASE_NAME = "vip-expiry-sweep";
+
+    private static final String SELECT_EXPIRED_SQL = "SELECT id, username FROM users "
+            + "WHERE account_type = ? AND vip_expiry_date < ? ORDER BY vip_expiry_date";
+
+    // Re-checks the predicate so a user upgraded again since the SELECT is left alone. token_version
+    // moves too, so stateless tokens still claiming VIP are renewed
+    private static final String DOWNGRADE_SQL = "UPDATE users "
+            + "SET account_type = :regular, vip_expiry_date = NULL, updated_at = :now, "
+            + "token_version = token_version + 1, version = version + 1 "
+            + "WHERE id IN (:ids) AND account_type = :vip AND vip_expiry_date < :now";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final SchedulerLeaseService leaseService;
+    private final PrincipalCache principalCache;
+    private final TokenVersionService tokenVersionService;
+    private final UserRepository userRepository;
+    private final int chunkSize;
+    private final Duration leaseTtl;
+
+    private final Counter swept;
+    private final Timer sweepTimer;
+
+    public VipExpirySweeper(JdbcTemplate jdbcTemplate,
+                            SchedulerLeaseService leaseService,
+                            PrincipalCache principalCache,
+                            TokenVersionService tokenVersionService,
+                            UserRepository userRepository,
+                            @Value("${vip-expiry.chunk-size}") int chunkSize,
+                            @Value("${vip-expiry.lease-ttl}") Duration leaseTtl,
+                            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.leaseService = leaseService;
+        this.principalCache = principalCache;
+        this.tokenVersionService = tokenVersionService;
+        this.userRepository = userRepository;
+        this.chunkSize = chunkSize;
+        this.leaseTtl = leaseTtl;
+        this.swept = meterRegistry.counter("vip.expiry.swept");
+        this.sweepTimer = Timer.builder("vip.expiry.sweep")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${vip-expiry.sweep-interval}")
+    public void sweep() {
+        if (!leaseService.tryAcquire(LEASE_NAME, leaseTtl)) {
+            return;
+        }
+
+        try {
+            long total = sweepTimer.record(this::sweepExpired);
+            if (total > 0) {
+                log.info("Downgraded {} expired VIP accounts", total);
+            }
+        } finally {
+            leaseService.release(LEASE_NAME);
+        }
+    }
+
+    private long sweepExpired() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        long total = 0;
+
+        while (true) {
+            List<Map.Entry<Long, String>> expired = jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(SELECT_EXPIRED_SQL);
+                ps.setString(1, AccountType.VIP.name());
+                ps.setTimestamp(2, now);
+                ps.setMaxRows(chunkSize);
+                return ps;
+            }, (rs, rowNum) -> Map.entry(rs.getLong("id"), rs.getString("username")));
+
+            if (expired.isEmpty()) {
+                return total;
+            }
+
+            List<Long> ids = expired.stream().map(Map.Entry::getKey).toList();
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("regular", AccountType.REGULAR.name())
+                    .addValue("vip", AccountType.VIP.name())
+                    .addValue("now", now)
+                    .addValue("ids", ids);
+            int updated = namedJdbcTemplate.update(DOWNGRADE_SQL, params);
+
+            userRepository.evictFromCacheAfterCommit(ids);
+            expired.forEach(entry -> principalCache.evict(entry.getValue()));
+            ids.forEach(tokenVersionService::evictAfterCommit);
+            swept.increment(updated);
+            total += updated;
+
+            if (expired.size() < chunkSize) {
+                return total;
+            }
+            // Long sweeps keep extending the lease; stop if another node has taken it over
+            if (!leaseService.tryAcquire(LEASE_NAME, leaseTtl)) {
+                return total;
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.config.StatementCountingInspector;
+import com.example.userservice.dto.VIPUpgradeRequestDTO;
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.VIPUpgradeRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The listings must stay one SELECT however many rows they return (no lazy user load per row).
+// The second-level cache is left out of the slice, so a per-row user load would hit the database
+@DataJpaTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.example.userservice.config.StatementCountingInspector"
+})
+class VIPUpgradeRequestRepositoryTest {
+
+    private static final int ROWS = 5;
+
+    // UserRepositoryImpl publishes cache metrics
+    @TestConfiguration
+    static class MeterRegistryConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private VIPUpgradeRequestRepository requestRepository;
+
+    @Test
+    void pageQueryStatementCountDoesNotGrowWithRows() {
+        seed(ROWS, 1);
+        int small = countStatements(() -> requestRepository.findDtoPage(
+                VIPUpgradeRequest.RequestStatus.PENDING, null, null, null, null, Integer.MAX_VALUE), ROWS);
+
+        seed(ROWS * 9, 1);
+        int large = countStatements(() -> requestRepository.findDtoPage(
+                VIPUpgradeRequest.RequestStatus.PENDING, null, null, null, null, Integer.MAX_VALUE), ROWS * 10);
+
+        assertThat(small).isEqualTo(1);
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void userListingStatementCountDoesNotGrowWithRows() {
+        Long userId = seed(1, ROWS);
+        int small = countStatements(() -> requestRepository.findDtosByUserIdOrderByRequestDateDesc(userId), ROWS);
+
+        Long otherUserId = seed(1, ROWS * 10);
+        int large = countStatements(() -> requestRepository.findDtosByUserIdOrderByRequestDateDesc(otherUserId),
+                ROWS * 10);
+
+        assertThat(small).isEqualTo(1);
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void pagesWalkEveryRowOnceAcrossEqualRequestDates() {
+        // Several users per request date, so the cursor has to fall back on the id
+        LocalDateTime requestDate = LocalDateTime.now().withNano(0);
+        for (int i = 0; i < ROWS * 2; i++) {
+            seedRequest(requestDate.minusSeconds(i / 3));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<VIPUpgradeRequestDTO> all = requestRepository.findDtoPage(
+                null, null, null, null, null, Integer.MAX_VALUE);
+        List<VIPUpgradeRequestDTO> walked = new ArrayList<>();
+        VIPUpgradeRequestDTO last = null;
+        do {
+            List<VIPUpgradeRequestDTO> page = requestRepository.findDtoPage(null, null, null,
+                    last == null ? null : last.requestDate(), last == null ? null : last.id(), 3);
+            walked.addAll(page);
+            last = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (last != null);
+
+        assertThat(walked).extracting(VIPUpgradeRequestDTO::id)
+                .containsExactlyElementsOf(all.stream().map(VIPUpgradeRequestDTO::id).toList());
+        assertThat(walked).hasSize(ROWS * 2).isSortedAccordingTo(
+                Comparator.comparing(VIPUpgradeRequestDTO::requestDate)
+                        .thenComparing(VIPUpgradeRequestDTO::id)
+                        .reversed());
+    }
+
+    // Starts from an empty persistence context so every user would have to be loaded again
+    private int countStatements(Supplier<List<VIPUpgradeRequestDTO>> listing, int expectedRows) {
+        entityManager.flush();
+        entityManager.clear();
+
+        StatementCountingInspector.start();
+        List<VIPUpgradeRequestDTO> rows = listing.get();
+        int statements = StatementCountingInspector.stop();
+
+        assertThat(rows).hasSize(expectedRows).allSatisfy(row -> assertThat(row.username()).isNotNull());
+        return statements;
+    }
+
+    private void seedRequest(LocalDateTime requestDate) {
+        String username = "user" + System.nanoTime();
+        User user = entityManager.persist(User.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .password("password")
+                .build());
+        VIPUpgradeRequest request = new VIPUpgradeRequest();
+        request.setUser(user);
+        request.setRequestedMonths(1);
+        request.setRequestDate(requestDate);
+        entityManager.persist(request);
+    }
+
+    // users x requestsPerUser requests; only the newest request of each user is still pending.
+    // Returns the id of the last user created
+    private Long seed(int users, int requestsPerUser) {
+        Long userId = null;
+        LocalDateTime requestDate = LocalDateTime.now();
+        for (int i = 0; i < users; i++) {
+            String username = "user" + System.nanoTime();
+            User user = entityManager.persist(User.builder()
+                    .username(username)
+                    .email(username + "@example.com")
+                    .password("password")
+                    .build());
+            for (int j = 0; j < requestsPerUser; j++) {
+                VIPUpgradeRequest request = new VIPUpgradeRequest();
+                request.setUser(user);
+                request.setRequestedMonths(1);
+                request.setRequestDate(requestDate = requestDate.minusSeconds(1));
+                request.setStatus(j == 0
+                        ? VIPUpgradeRequest.RequestStatus.PENDING
+                        : VIPUpgradeRequest.RequestStatus.REJECTED);
+                entityManager.persist(request);
+            }
+            userId = user.getId();
+        }
+        return userId;
+    }
+}